@@ -17,27 +17,44 @@
 
 package com.jeff_media.jefflib;
 
+import com.jeff_media.jefflib.data.BlockTrackerAudit;
+import com.jeff_media.jefflib.data.IntTriConsumer;
 import com.jeff_media.jefflib.exceptions.UtilityClassInstantiationException;
-import java.util.Arrays;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.blocktracker.BlockTrackerAuditor;
+import com.jeff_media.jefflib.internal.blocktracker.BlockTrackerCache;
+import com.jeff_media.jefflib.internal.blocktracker.BlockTrackerStorage;
+import com.jeff_media.jefflib.internal.blocktracker.ChunkBatch;
+import com.jeff_media.jefflib.internal.blocktracker.ChunkTrackingData;
+import com.jeff_media.jefflib.internal.blocktracker.MaterialFilter;
+import com.jeff_media.jefflib.internal.blocktracker.PdcBitsetStorage;
+import com.jeff_media.jefflib.internal.blocktracker.PdcKeyStorage;
+import com.jeff_media.jefflib.internal.blocktracker.RegionFileStorage;
+import com.jeff_media.jefflib.internal.blocktracker.RemovalQueue;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import lombok.experimental.UtilityClass;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataHolder;
-import org.bukkit.persistence.PersistentDataType;
-import org.bukkit.plugin.Plugin;
-import org.jetbrains.annotations.Contract;
+import org.bukkit.block.BlockFace;
+import org.bukkit.util.BoundingBox;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Tracks player placed blocks.
  * <p>
  * Uses the chunk's PersistentDataContainer to store information about which blocks have been placed
- * by the player. You can track all block types or only certain ones.
+ * by the player. You can track all block types or only certain ones. How the data is stored inside the chunk
+ * can be chosen using {@link StorageType}.
  * <p>
  * <b>Important: Tracking blocks requires registering the listener using {@link JeffLib#registerBlockTracker()}</b>
  */
@@ -47,9 +64,185 @@ public final class BlockTracker {
         throw new UtilityClassInstantiationException();
     }
 
-    private static final Plugin plugin = JeffLib.getPlugin();
-    private static final NamespacedKey PLAYER_PLACED_TAG = new NamespacedKey(plugin, "playerplaced");
-    private static final Collection<Material> TRACKED_TYPES = new HashSet<>();
+    private static final Object TRACKED_TYPES_LOCK = new Object();
+    private static volatile MaterialFilter trackedTypes = MaterialFilter.NONE;
+    private static StorageType storageType = StorageType.PDC_KEYS;
+    private static BlockTrackerStorage storage;
+    private static boolean cacheEnabled = false;
+    private static boolean placerTrackingEnabled = false;
+    private static BlockTrackerCache cache;
+    private static RemovalQueue removalQueue;
+
+    /**
+     * Gets the currently used {@link StorageType}
+     *
+     * @return currently used storage type
+     */
+    @NotNull
+    public static StorageType getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * Sets how tracked blocks are stored. Should be called before registering the block tracker, see {@link JeffLib#registerBlockTracker(StorageType)}.
+     *
+     * @param type storage type to use
+     */
+    public static void setStorageType(@NotNull final StorageType type) {
+        if (removalQueue != null) {
+            removalQueue.flush();
+        }
+        if (cache != null) {
+            cache.saveAll();
+            cache = null;
+        }
+        if (storage != null) {
+            storage.close();
+            storage = null;
+        }
+        storageType = type;
+    }
+
+    /**
+     * Checks whether tracked blocks are cached in memory while their chunk is loaded. This is always the case for
+     * {@link StorageType#REGION_FILES}.
+     *
+     * @return true if the cache is enabled, otherwise false
+     */
+    public static boolean isCacheEnabled() {
+        return cacheEnabled || storageType.requiresCache();
+    }
+
+    /**
+     * Sets whether tracked blocks are cached in memory while their chunk is loaded. When enabled, a chunk's data is read
+     * once and all queries are answered from memory. Changes are only written back to the chunk when it unloads or
+     * the world is saved. Should be called before registering the block tracker, see {@link JeffLib#registerBlockTracker(StorageType, boolean)}.
+     * <p>
+     * The cache must only be accessed from the main thread.
+     *
+     * @param enabled whether to enable the cache
+     */
+    public static void setCacheEnabled(final boolean enabled) {
+        if (!enabled && cache != null && !storageType.requiresCache()) {
+            cache.saveAll();
+            cache = null;
+        }
+        cacheEnabled = enabled;
+    }
+
+    /**
+     * Checks whether the player who placed a block and the time it was placed at are stored
+     *
+     * @return true if placer tracking is enabled, otherwise false
+     */
+    public static boolean isPlacerTrackingEnabled() {
+        return placerTrackingEnabled;
+    }
+
+    /**
+     * Sets whether the player who placed a block and the time it was placed at are stored alongside the player placed
+     * state. The placers of a chunk are stored as a dictionary, so every player's UUID is stored only once per chunk.
+     * Use {@link #getPlacer(Block)} and {@link #getPlacedAt(Block)} to read this information.
+     * <p>
+     * Placer information is not persisted when using {@link StorageType#PDC_KEYS}. Disabled by default.
+     *
+     * @param enabled whether to enable placer tracking
+     */
+    public static void setPlacerTrackingEnabled(final boolean enabled) {
+        placerTrackingEnabled = enabled;
+    }
+
+    /**
+     * Returns the cache, or null if caching is disabled
+     *
+     * @internal For internal use only
+     */
+    @Internal
+    @Nullable
+    static BlockTrackerCache getCache() {
+        if (!isCacheEnabled()) return null;
+        if (cache == null) {
+            cache = new BlockTrackerCache(getStorage());
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the queue used to remove the player placed state of broken blocks on the next tick
+     *
+     * @internal For internal use only
+     */
+    @Internal
+    @NotNull
+    static RemovalQueue getRemovalQueue() {
+        if (removalQueue == null) {
+            removalQueue = new RemovalQueue(JeffLib.getPlugin(), blocks -> setPlayerPlacedBlocks(blocks, false));
+        }
+        return removalQueue;
+    }
+
+    /**
+     * Gets the total amount of broken or exploded blocks whose player placed state has been removed through the
+     * deferred removal queue. Removals are collected during a tick and flushed once on the next tick.
+     *
+     * @return amount of queued removals
+     */
+    public static long getQueuedRemovals() {
+        return removalQueue == null ? 0 : removalQueue.getQueuedRemovals();
+    }
+
+    /**
+     * Gets how often the deferred removal queue has been flushed
+     *
+     * @return amount of flushes
+     */
+    public static long getRemovalFlushes() {
+        return removalQueue == null ? 0 : removalQueue.getFlushes();
+    }
+
+    /**
+     * Gets the amount of deferred removals that were coalesced into another removal's flush, i.e. that didn't need
+     * their own scheduler task and chunk write
+     *
+     * @return amount of coalesced removals
+     */
+    public static long getCoalescedRemovals() {
+        return removalQueue == null ? 0 : removalQueue.getCoalescedRemovals();
+    }
+
+    private static BlockTrackerStorage getStorage() {
+        if (storage == null) {
+            storage = storageType.createStorage();
+        }
+        return storage;
+    }
+
+    private static ChunkTrackingData getData(final Chunk chunk) {
+        final BlockTrackerCache cache = getCache();
+        return cache != null ? cache.get(chunk) : getStorage().read(chunk);
+    }
+
+    private static ChunkTrackingData getData(final Block block) {
+        final BlockTrackerCache cache = getCache();
+        return cache != null ? cache.get(block.getWorld(), block.getX() >> 4, block.getZ() >> 4) : getStorage().read(block.getChunk());
+    }
+
+    private static ChunkBatch newBatch() {
+        final BlockTrackerCache cache = getCache();
+        return cache != null ? new ChunkBatch(cache::get) : new ChunkBatch(getStorage()::read);
+    }
+
+    private static void commit(final ChunkBatch batch) {
+        if (getCache() != null) {
+            // Changed data stays in the cache and is written back when the chunk unloads
+            return;
+        }
+        final BlockTrackerStorage storage = getStorage();
+        batch.commit((chunk, data) -> {
+            storage.write(chunk, data);
+            data.setDirty(false);
+        });
+    }
 
     /**
      * Adds a new material to the block tracker
@@ -57,39 +250,45 @@ public final class BlockTracker {
      * @param type material to track
      */
     public static void addTrackedBlockType(final Material type) {
-        TRACKED_TYPES.add(type);
+        addTrackedBlockTypes(Collections.singleton(type));
     }
 
     /**
-     * Gets a collection containing all tracked materials
+     * Gets a collection containing all tracked materials. The returned collection is an unmodifiable snapshot.
      *
      * @return Collection containing all tracked materials
      */
     public static Collection<Material> getTrackedBlockTypes() {
-        return TRACKED_TYPES;
+        return trackedTypes.toSet();
     }
 
     /**
      * Tracks all materials
      */
     public static void trackAllBlockTypes() {
-        addTrackedBlockTypes(Arrays.asList(Material.values()));
+        synchronized (TRACKED_TYPES_LOCK) {
+            trackedTypes = MaterialFilter.ALL;
+        }
     }
 
     /**
-     * Adds new materials to the block tracker
+     * Adds new materials to the block tracker. Tracked materials can safely be changed from any thread.
      *
      * @param types materials to track
      */
     public static void addTrackedBlockTypes(final Collection<Material> types) {
-        TRACKED_TYPES.addAll(types);
+        synchronized (TRACKED_TYPES_LOCK) {
+            trackedTypes = trackedTypes.with(types);
+        }
     }
 
     /**
      * Clears the list of tracked materials
      */
     public static void clearTrackedBlockTypes() {
-        TRACKED_TYPES.clear();
+        synchronized (TRACKED_TYPES_LOCK) {
+            trackedTypes = MaterialFilter.NONE;
+        }
     }
 
     /**
@@ -99,7 +298,7 @@ public final class BlockTracker {
      * @return true when this material is already tracked, otherwise false
      */
     public static boolean isTrackedBlockType(final Material type) {
-        return TRACKED_TYPES.contains(type);
+        return trackedTypes.contains(type);
     }
 
     /**
@@ -108,7 +307,9 @@ public final class BlockTracker {
      * @param types Collection of Materials to stop tracking
      */
     public static void removeTrackedBlockTypes(final Collection<Material> types) {
-        TRACKED_TYPES.removeAll(types);
+        synchronized (TRACKED_TYPES_LOCK) {
+            trackedTypes = trackedTypes.without(types);
+        }
     }
 
     /**
@@ -118,50 +319,89 @@ public final class BlockTracker {
      * @return true when the block was player-placed and tracked, otherwise false
      */
     public static boolean isPlayerPlacedBlock(final Block block) {
-        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(block.getChunk());
-        return playerPlacedPDC.has(getKey(block), PersistentDataType.BYTE);
+        final BlockTrackerCache cache = getCache();
+        if (cache != null) {
+            return cache.get(block.getWorld(), block.getX() >> 4, block.getZ() >> 4).get(block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F);
+        }
+        return getStorage().isTracked(block.getChunk(), block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F);
     }
 
-    private static PersistentDataContainer getPlayerPlacedPDC(final PersistentDataHolder chunk) {
-        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
-        return pdc.getOrDefault(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER, pdc.getAdapterContext().newPersistentDataContainer());
+    /**
+     * Gets a collection of all blocks that have been placed by players inside a chunk
+     *
+     * @param chunk Chunk to check
+     * @return Collection of all blocks inside the chunk that have been placed by players
+     */
+    @NotNull
+    public static Collection<Block> getPlayerPlacedBlocks(final Chunk chunk) {
+        final Collection<Block> blocks = new HashSet<>();
+        getData(chunk).forEach(0, 0, (x, y, z) -> blocks.add(chunk.getBlock(x, y, z)));
+        return blocks;
     }
 
     /**
-     * Creates a {@link NamespacedKey} for a block based on its chunk location
+     * Calls the given consumer with the absolute x, y and z coordinates of every player placed block inside a chunk.
+     * Unlike {@link #getPlayerPlacedBlocks(Chunk)}, this doesn't create any {@link Block} objects. When the cache is
+     * enabled (see {@link #setCacheEnabled(boolean)}), this doesn't allocate any objects at all.
      *
-     * @param block Block to create the key for
-     * @return NamespacedKey for the block
+     * @param chunk    Chunk to check
+     * @param consumer Consumer accepting the x, y and z coordinates
      */
-    @Contract("_ -> new")
-    private static NamespacedKey getKey(@NotNull final Block block) {
-        final int x = block.getX() & 0x000F;
-        final int y = block.getY();
-        final int z = block.getZ() & 0x000F;
+    public static void forEachPlayerPlaced(final Chunk chunk, final IntTriConsumer consumer) {
+        getData(chunk).forEach(chunk.getX() << 4, chunk.getZ() << 4, consumer);
+    }
 
-        //noinspection HardcodedFileSeparator
-        return new NamespacedKey(plugin, String.format("%d/%d/%d", x, y, z));
+    /**
+     * Counts the player placed blocks inside a chunk
+     *
+     * @param chunk Chunk to check
+     * @return Amount of player placed blocks inside the chunk
+     */
+    public static int countPlayerPlaced(final Chunk chunk) {
+        return getData(chunk).count();
     }
 
     /**
-     * Gets a collection of all blocks that have been placed by players inside a chunk
+     * Returns an iterator over the positions of all player placed blocks inside a chunk. Every position is packed
+     * into a single long, use {@link #unpackX(long)}, {@link #unpackY(long)} and {@link #unpackZ(long)} to get the
+     * absolute block coordinates. The iterator must not be used after the chunk's tracked blocks have been changed.
      *
      * @param chunk Chunk to check
-     * @return Collection of all blocks inside the chunk that have been placed by players
+     * @return Iterator over the packed positions of all player placed blocks inside the chunk
      */
     @NotNull
-    public static Collection<Block> getPlayerPlacedBlocks(final Chunk chunk) {
-        final Collection<Block> blocks = new HashSet<>();
-        final PersistentDataContainer pdc = getPlayerPlacedPDC(chunk);
-        for (final NamespacedKey key : pdc.getKeys()) {
-            if (!key.getNamespace().equals(PLAYER_PLACED_TAG.getNamespace())) continue;
-            final String[] parts = key.getKey().split("/");
-            final int x = Integer.parseInt(parts[0]);
-            final int y = Integer.parseInt(parts[1]);
-            final int z = Integer.parseInt(parts[2]);
-            blocks.add(chunk.getBlock(x, y, z));
-        }
-        return blocks;
+    public static PrimitiveIterator.OfLong getPlayerPlacedPositions(final Chunk chunk) {
+        return getData(chunk).iterator(chunk.getX() << 4, chunk.getZ() << 4);
+    }
+
+    /**
+     * Gets the X coordinate of a position returned by {@link #getPlayerPlacedPositions(Chunk)}
+     *
+     * @param packed packed position
+     * @return X coordinate
+     */
+    public static int unpackX(final long packed) {
+        return ChunkTrackingData.unpackX(packed);
+    }
+
+    /**
+     * Gets the Y coordinate of a position returned by {@link #getPlayerPlacedPositions(Chunk)}
+     *
+     * @param packed packed position
+     * @return Y coordinate
+     */
+    public static int unpackY(final long packed) {
+        return ChunkTrackingData.unpackY(packed);
+    }
+
+    /**
+     * Gets the Z coordinate of a position returned by {@link #getPlayerPlacedPositions(Chunk)}
+     *
+     * @param packed packed position
+     * @return Z coordinate
+     */
+    public static int unpackZ(final long packed) {
+        return ChunkTrackingData.unpackZ(packed);
     }
 
     /**
@@ -171,15 +411,225 @@ public final class BlockTracker {
      * @param playerPlaced Whether the block was player placed
      */
     public static void setPlayerPlacedBlock(final Block block, final boolean playerPlaced) {
-        final PersistentDataContainer pdc = block.getChunk().getPersistentDataContainer();
-        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(block.getChunk());
-        final NamespacedKey key = getKey(block);
-        if (playerPlaced) {
-            playerPlacedPDC.set(key, PersistentDataType.BYTE, (byte) 1);
-        } else {
-            playerPlacedPDC.remove(key);
-        }
-        pdc.set(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER, playerPlacedPDC);
+        final BlockTrackerCache cache = getCache();
+        if (cache != null) {
+            cache.get(block.getWorld(), block.getX() >> 4, block.getZ() >> 4).set(block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F, playerPlaced);
+            return;
+        }
+        getStorage().setTracked(block.getChunk(), block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F, playerPlaced);
+    }
+
+    /**
+     * Manually marks this block as placed by the given player at the current time. The placer is stored even if placer
+     * tracking is disabled (see {@link #setPlacerTrackingEnabled(boolean)}).
+     *
+     * @param block  Block
+     * @param placer UUID of the player who placed the block
+     */
+    public static void setPlayerPlacedBlock(final Block block, final UUID placer) {
+        final int x = block.getX() & 0x0F;
+        final int z = block.getZ() & 0x0F;
+        final BlockTrackerCache cache = getCache();
+        final ChunkTrackingData data = cache != null ? cache.get(block.getWorld(), block.getX() >> 4, block.getZ() >> 4) : getStorage().read(block.getChunk());
+        data.set(x, block.getY(), z, true);
+        data.setPlacer(x, block.getY(), z, placer, System.currentTimeMillis());
+        if (cache == null) {
+            getStorage().write(block.getChunk(), data);
+        }
+    }
+
+    /**
+     * Gets the player who placed this block. Only available when the block was placed while placer tracking was
+     * enabled (see {@link #setPlacerTrackingEnabled(boolean)}). When the cache is enabled, this doesn't allocate any
+     * objects.
+     *
+     * @param block Block to check
+     * @return UUID of the player who placed the block, or null if unknown
+     */
+    @Nullable
+    public static UUID getPlacer(final Block block) {
+        return getData(block).getPlacer(block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F);
+    }
+
+    /**
+     * Gets the time this block was placed at. Only available when the block was placed while placer tracking was
+     * enabled (see {@link #setPlacerTrackingEnabled(boolean)}).
+     *
+     * @param block Block to check
+     * @return Time in milliseconds since epoch, or -1 if unknown
+     */
+    public static long getPlacedAt(final Block block) {
+        return getData(block).getPlacedAt(block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F);
+    }
+
+    /**
+     * Manually sets whether a player placed these blocks. Changes are grouped by chunk, so every affected chunk is only
+     * written once.
+     *
+     * @param blocks       Blocks
+     * @param playerPlaced Whether the blocks were player placed
+     */
+    public static void setPlayerPlacedBlocks(final Collection<Block> blocks, final boolean playerPlaced) {
+        if (blocks.isEmpty()) return;
+        final ChunkBatch batch = newBatch();
+        for (final Block block : blocks) {
+            batch.set(block.getWorld(), block.getX(), block.getY(), block.getZ(), playerPlaced);
+        }
+        commit(batch);
+    }
+
+    /**
+     * Moves the player placed state of the given blocks one block into the given direction, e.g. when they're pushed
+     * by a piston. Blocks that weren't player placed are ignored. Changes are grouped by chunk, so every affected chunk
+     * is only written once.
+     *
+     * @param blocks    Blocks that are being moved
+     * @param direction Direction the blocks are moved to
+     */
+    public static void moveBlocks(final Collection<Block> blocks, final BlockFace direction) {
+        if (blocks.isEmpty()) return;
+        final ChunkBatch batch = newBatch();
+        final List<Block> moved = new ArrayList<>();
+        for (final Block block : blocks) {
+            if (batch.get(block.getWorld(), block.getX(), block.getY(), block.getZ())) {
+                moved.add(block);
+            }
+        }
+        if (moved.isEmpty()) return;
+        final UUID[] placers = new UUID[moved.size()];
+        final long[] placedAt = new long[moved.size()];
+        for (int i = 0; i < moved.size(); i++) {
+            final Block block = moved.get(i);
+            final ChunkTrackingData data = batch.get(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+            placers[i] = data.getPlacer(block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F);
+            placedAt[i] = data.getPlacedAt(block.getX() & 0x0F, block.getY(), block.getZ() & 0x0F);
+            batch.set(block.getWorld(), block.getX(), block.getY(), block.getZ(), false);
+        }
+        for (int i = 0; i < moved.size(); i++) {
+            final Block block = moved.get(i);
+            final int x = block.getX() + direction.getModX();
+            final int y = block.getY() + direction.getModY();
+            final int z = block.getZ() + direction.getModZ();
+            batch.set(block.getWorld(), x, y, z, true);
+            if (placers[i] != null) {
+                batch.get(block.getWorld(), x >> 4, z >> 4).setPlacer(x & 0x0F, y, z & 0x0F, placers[i], placedAt[i]);
+            }
+        }
+        commit(batch);
+    }
+
+    /**
+     * Marks all blocks inside the given region as not player placed. All chunks intersecting the region will be loaded.
+     * Every affected chunk is only written once.
+     *
+     * @param world World
+     * @param box   Region to clear
+     * @return Amount of blocks that were player placed before
+     */
+    public static int clearRegion(final World world, final BoundingBox box) {
+        final int minX = (int) Math.floor(box.getMinX());
+        final int minY = (int) Math.floor(box.getMinY());
+        final int minZ = (int) Math.floor(box.getMinZ());
+        final int maxX = Math.max(minX, (int) Math.ceil(box.getMaxX()) - 1);
+        final int maxY = Math.max(minY, (int) Math.ceil(box.getMaxY()) - 1);
+        final int maxZ = Math.max(minZ, (int) Math.ceil(box.getMaxZ()) - 1);
+        final ChunkBatch batch = newBatch();
+        int removed = 0;
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                final int baseX = chunkX << 4;
+                final int baseZ = chunkZ << 4;
+                removed += batch.get(world, chunkX, chunkZ).clear(
+                        Math.max(minX, baseX) - baseX, minY, Math.max(minZ, baseZ) - baseZ,
+                        Math.min(maxX, baseX + 15) - baseX, maxY, Math.min(maxZ, baseZ + 15) - baseZ);
+            }
+        }
+        commit(batch);
+        return removed;
+    }
+
+    /**
+     * Counts the player placed blocks of every chunk in the given world without loading any chunks. Loaded chunks are
+     * counted on the main thread, all other chunks are read asynchronously from disk. Chunks that
+     * aren't loaded are counted as they were last saved.
+     *
+     * @param world    World to audit
+     * @param progress Optional callback that is called asynchronously after each region file (32x32 chunks) has been
+     *                 scanned, receiving the amount of scanned region files and the total amount of region files
+     * @return CompletableFuture that completes with the audit result
+     */
+    @NotNull
+    public static CompletableFuture<BlockTrackerAudit> auditWorld(final World world, @Nullable final BiConsumer<Integer, Integer> progress) {
+        return auditChunks(world, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, progress);
+    }
+
+    /**
+     * Counts the player placed blocks of every chunk inside the given chunk coordinates (inclusive) without loading any
+     * chunks. See {@link #auditWorld(World, BiConsumer)} for details.
+     *
+     * @param world     World to audit
+     * @param minChunkX Lowest chunk X coordinate
+     * @param minChunkZ Lowest chunk Z coordinate
+     * @param maxChunkX Highest chunk X coordinate
+     * @param maxChunkZ Highest chunk Z coordinate
+     * @param progress  Optional callback that is called asynchronously after each region file has been scanned
+     * @return CompletableFuture that completes with the audit result
+     */
+    @NotNull
+    public static CompletableFuture<BlockTrackerAudit> auditChunks(final World world, final int minChunkX, final int minChunkZ,
+                                                                   final int maxChunkX, final int maxChunkZ,
+                                                                   @Nullable final BiConsumer<Integer, Integer> progress) {
+        return new BlockTrackerAuditor(JeffLib.getPlugin(), world, getStorage(), minChunkX, minChunkZ, maxChunkX, maxChunkZ, progress)
+                .run(BlockTracker::getData);
+    }
+
+    /**
+     * Defines how tracked blocks are stored inside the chunk's PersistentDataContainer
+     */
+    public enum StorageType {
+        /**
+         * One key per tracked block inside a nested PersistentDataContainer. This is the original format and the default.
+         * Can't store placer information, see {@link #setPlacerTrackingEnabled(boolean)}.
+         */
+        PDC_KEYS {
+            @Override
+            BlockTrackerStorage createStorage() {
+                return new PdcKeyStorage();
+            }
+        },
+        /**
+         * One compact bitset per 16x16x16 chunk section, stored as a single byte array per chunk. Chunks still using
+         * the {@link #PDC_KEYS} format are migrated automatically when they're accessed.
+         */
+        PDC_BITSET {
+            @Override
+            BlockTrackerStorage createStorage() {
+                return new PdcBitsetStorage();
+            }
+        },
+        /**
+         * Compact bitsets stored outside of the chunks in region-style files inside the plugin's data folder, one
+         * file per 32x32 chunks. Keeps chunk data small on very large worlds. Always uses the cache (see
+         * {@link #setCacheEnabled(boolean)}) and writes changes asynchronously in batches. Existing data stored in
+         * the chunks is not migrated.
+         */
+        REGION_FILES {
+            @Override
+            BlockTrackerStorage createStorage() {
+                return new RegionFileStorage(JeffLib.getPlugin());
+            }
+
+            @Override
+            boolean requiresCache() {
+                return true;
+            }
+        };
+
+        abstract BlockTrackerStorage createStorage();
+
+        boolean requiresCache() {
+            return false;
+        }
     }
 
 }
@@ -19,20 +19,48 @@ package com.jeff_media.jefflib;
 
 import com.jeff_media.jefflib.internal.annotations.NMS;
 import com.jeff_media.jefflib.internal.annotations.Tested;
+import com.jeff_media.jefflib.internal.listeners.ShutdownListener;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutput;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.util.io.BukkitObjectInputStream;
 import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
 /**
@@ -41,6 +69,15 @@ import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 @UtilityClass
 public class ItemStackSerializer {
 
+    private static final byte[] COMPACT_MAGIC = {'J', 'I', 'S'};
+    private static final int COMPACT_VERSION = 1;
+    private static final byte[] INVENTORY_MAGIC = {'J', 'I', 'V'};
+    private static final int INVENTORY_VERSION = 1;
+    private static final byte[] BATCH_MAGIC = {'J', 'I', 'B'};
+    private static final int BATCH_VERSION = 1;
+    private static final int MAX_CHEST_SIZE = 54;
+    private static volatile ExecutorService defaultExecutor;
+
     /**
      * Turns an ItemStack into a Base64 String
      *
@@ -219,6 +256,467 @@ public class ItemStackSerializer {
         }
     }
 
+    /**
+     * Turns an ItemStack into a compact byte array. The item is stored as binary NBT together with the server's data
+     * version, which is a lot faster and smaller than {@link #toBytes(ItemStack)}.
+     *
+     * @nms
+     * @see #fromCompactBytes(byte[])
+     */
+    @NMS
+    public static byte[] toCompactBytes(@Nullable final ItemStack itemStack) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write(COMPACT_MAGIC);
+            output.writeByte(COMPACT_VERSION);
+            output.writeInt(Bukkit.getUnsafe().getDataVersion());
+            JeffLib.getNMSHandler().writeItemStack(itemStack, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Turns a byte array from {@link #toCompactBytes(ItemStack)} into an ItemStack. Items saved on older Minecraft versions
+     * are upgraded to the current version. Byte arrays created by {@link #toBytes(ItemStack)} are accepted as well.
+     *
+     * @throws IOException if the data couldn't be read
+     * @nms
+     */
+    @NMS
+    public static ItemStack fromCompactBytes(@NotNull final byte[] input) throws IOException {
+        if (!isCompact(input)) {
+            try {
+                return fromBytes(input);
+            } catch (Exception e) {
+                throw new IOException("Data is neither a compact nor a legacy serialized ItemStack", e);
+            }
+        }
+        try (final DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(input, COMPACT_MAGIC.length, input.length - COMPACT_MAGIC.length))) {
+            final int version = dataInput.readUnsignedByte();
+            if (version != COMPACT_VERSION) {
+                throw new IOException("Unsupported compact ItemStack version: " + version);
+            }
+            return JeffLib.getNMSHandler().readItemStack(dataInput, dataInput.readInt());
+        }
+    }
+
+    /**
+     * Turns an ItemStack into a Base64 String using {@link #toCompactBytes(ItemStack)}
+     *
+     * @nms
+     */
+    @NMS
+    public static String toCompactBase64(@Nullable final ItemStack itemStack) {
+        return Base64.getEncoder().encodeToString(toCompactBytes(itemStack));
+    }
+
+    /**
+     * Turns a Base64 String from {@link #toCompactBase64(ItemStack)} or {@link #toBase64(ItemStack)} into an ItemStack
+     *
+     * @throws IOException if the data couldn't be read
+     * @nms
+     */
+    @NMS
+    public static ItemStack fromCompactBase64(@NotNull final String input) throws IOException {
+        return fromCompactBytes(Base64.getDecoder().decode(input));
+    }
+
+    /**
+     * Writes the given items to the stream without building any intermediate byte arrays or Strings. Only non-empty
+     * slots are written, together with their slot index. The stream is flushed, but not closed.
+     *
+     * @throws IOException if writing to the stream failed
+     * @nms
+     * @see #readItems(InputStream)
+     */
+    @NMS
+    public static void writeItems(@NotNull final ItemStack[] items, @NotNull final OutputStream outputStream) throws IOException {
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        int count = 0;
+        for (final ItemStack item : items) {
+            if (!isEmpty(item)) count++;
+        }
+        output.write(INVENTORY_MAGIC);
+        output.writeByte(INVENTORY_VERSION);
+        output.writeInt(Bukkit.getUnsafe().getDataVersion());
+        writeVarInt(output, items.length);
+        writeVarInt(output, count);
+        for (int slot = 0; slot < items.length; slot++) {
+            if (isEmpty(items[slot])) continue;
+            writeVarInt(output, slot);
+            JeffLib.getNMSHandler().writeItemStack(items[slot], output);
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads items written by {@link #writeItems(ItemStack[], OutputStream)}. Empty slots are null. The stream is not closed
+     * and nothing is read past the serialized items, so file streams should be wrapped in a {@link java.io.BufferedInputStream}.
+     *
+     * @throws IOException if the data couldn't be read
+     * @nms
+     */
+    @NMS
+    public static ItemStack[] readItems(@NotNull final InputStream inputStream) throws IOException {
+        final DataInputStream input = new DataInputStream(inputStream);
+        for (final byte magic : INVENTORY_MAGIC) {
+            if (input.readByte() != magic) throw new IOException("Not a serialized inventory");
+        }
+        final int version = input.readUnsignedByte();
+        if (version != INVENTORY_VERSION) {
+            throw new IOException("Unsupported serialized inventory version: " + version);
+        }
+        final int dataVersion = input.readInt();
+        final ItemStack[] items = new ItemStack[readVarInt(input)];
+        final int count = readVarInt(input);
+        for (int i = 0; i < count; i++) {
+            final int slot = readVarInt(input);
+            if (slot < 0 || slot >= items.length) throw new IOException("Invalid slot " + slot + " for size " + items.length);
+            items[slot] = JeffLib.getNMSHandler().readItemStack(input, dataVersion);
+        }
+        return items;
+    }
+
+    /**
+     * Writes the contents of the given inventory to the stream, see {@link #writeItems(ItemStack[], OutputStream)}
+     *
+     * @throws IOException if writing to the stream failed
+     * @nms
+     */
+    @NMS
+    public static void writeInventory(@NotNull final Inventory inventory, @NotNull final OutputStream outputStream) throws IOException {
+        writeItems(inventory.getContents(), outputStream);
+    }
+
+    /**
+     * Reads an inventory written by {@link #writeInventory(Inventory, OutputStream)} into a new chest inventory. Its size is
+     * the serialized size rounded up to the next multiple of 9, for example 45 for the 41 slots of a player inventory.
+     *
+     * @throws IOException if the data couldn't be read, or has more than 54 slots
+     * @nms
+     */
+    @NMS
+    public static Inventory readInventory(@NotNull final InputStream inputStream) throws IOException {
+        final ItemStack[] items = readItems(inputStream);
+        if (items.length > MAX_CHEST_SIZE) {
+            throw new IOException("Serialized inventory has " + items.length + " slots, but a chest inventory can only have " + MAX_CHEST_SIZE
+                    + ", use readInventory(InputStream, Inventory) instead");
+        }
+        final int size = Math.max(9, (items.length + 8) / 9 * 9);
+        final Inventory inventory = Bukkit.getServer().createInventory(null, size);
+        inventory.setContents(Arrays.copyOf(items, size));
+        return inventory;
+    }
+
+    /**
+     * Reads an inventory written by {@link #writeInventory(Inventory, OutputStream)} into the given inventory, replacing its contents
+     *
+     * @throws IOException if the data couldn't be read, or doesn't fit into the given inventory
+     * @nms
+     */
+    @NMS
+    public static void readInventory(@NotNull final InputStream inputStream, @NotNull final Inventory target) throws IOException {
+        final ItemStack[] items = readItems(inputStream);
+        if (items.length > target.getSize()) {
+            throw new IOException("Serialized inventory has " + items.length + " slots, but the target only has " + target.getSize());
+        }
+        target.setContents(Arrays.copyOf(items, target.getSize()));
+    }
+
+    /**
+     * Writes the contents of the given inventory into the buffer, starting at its current position
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     * @nms
+     * @see #writeInventory(Inventory, OutputStream)
+     */
+    @NMS
+    public static void writeInventory(@NotNull final Inventory inventory, @NotNull final ByteBuffer buffer) {
+        try {
+            writeInventory(inventory, new ByteBufferOutputStream(buffer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads an inventory from the buffer, starting at its current position, into a new inventory
+     *
+     * @throws IOException if the data couldn't be read
+     * @nms
+     * @see #readInventory(InputStream)
+     */
+    @NMS
+    public static Inventory readInventory(@NotNull final ByteBuffer buffer) throws IOException {
+        return readInventory(new ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * Writes many inventories at once, storing every distinct item only once. Items are considered equal when they are
+     * {@link ItemStack#isSimilar(ItemStack) similar}, so a chest full of cobblestone only stores the cobblestone once,
+     * followed by a slot index, template index and amount per slot. The stream is flushed, but not closed.
+     *
+     * @param inventories contents of the inventories to write. Empty slots may be null.
+     * @throws IOException if writing to the stream failed
+     * @nms
+     * @see #readItemBatch(InputStream)
+     */
+    @NMS
+    public static void writeItemBatch(@NotNull final List<ItemStack[]> inventories, @NotNull final OutputStream outputStream) throws IOException {
+        final List<ItemStack> templates = new ArrayList<>();
+        final Map<Material, List<Integer>> templatesByType = new EnumMap<>(Material.class);
+        final int[][] references = new int[inventories.size()][];
+        for (int i = 0; i < inventories.size(); i++) {
+            final ItemStack[] items = inventories.get(i);
+            references[i] = new int[items.length];
+            for (int slot = 0; slot < items.length; slot++) {
+                final ItemStack item = items[slot];
+                if (isEmpty(item)) {
+                    references[i][slot] = -1;
+                    continue;
+                }
+                final List<Integer> candidates = templatesByType.computeIfAbsent(item.getType(), type -> new ArrayList<>(1));
+                int template = -1;
+                for (final int candidate : candidates) {
+                    if (templates.get(candidate).isSimilar(item)) {
+                        template = candidate;
+                        break;
+                    }
+                }
+                if (template == -1) {
+                    template = templates.size();
+                    templates.add(item);
+                    candidates.add(template);
+                }
+                references[i][slot] = template;
+            }
+        }
+
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.write(BATCH_MAGIC);
+        output.writeByte(BATCH_VERSION);
+        output.writeInt(Bukkit.getUnsafe().getDataVersion());
+        writeVarInt(output, templates.size());
+        for (final ItemStack template : templates) {
+            JeffLib.getNMSHandler().writeItemStack(template, output);
+        }
+        writeVarInt(output, inventories.size());
+        for (int i = 0; i < inventories.size(); i++) {
+            final ItemStack[] items = inventories.get(i);
+            int count = 0;
+            for (final int template : references[i]) {
+                if (template != -1) count++;
+            }
+            writeVarInt(output, items.length);
+            writeVarInt(output, count);
+            for (int slot = 0; slot < items.length; slot++) {
+                if (references[i][slot] == -1) continue;
+                writeVarInt(output, slot);
+                writeVarInt(output, references[i][slot]);
+                writeVarInt(output, items[slot].getAmount());
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads inventories written by {@link #writeItemBatch(List, OutputStream)}. Every distinct item is only parsed and
+     * upgraded once; the slots receive copies of the shared template with their own amount. Empty slots are null.
+     * The stream is not closed.
+     *
+     * @throws IOException if the data couldn't be read
+     * @nms
+     */
+    @NMS
+    public static List<ItemStack[]> readItemBatch(@NotNull final InputStream inputStream) throws IOException {
+        final DataInputStream input = new DataInputStream(inputStream);
+        for (final byte magic : BATCH_MAGIC) {
+            if (input.readByte() != magic) throw new IOException("Not a serialized item batch");
+        }
+        final int version = input.readUnsignedByte();
+        if (version != BATCH_VERSION) {
+            throw new IOException("Unsupported serialized item batch version: " + version);
+        }
+        final int dataVersion = input.readInt();
+        final ItemStack[] templates = new ItemStack[readVarInt(input)];
+        for (int i = 0; i < templates.length; i++) {
+            templates[i] = JeffLib.getNMSHandler().readItemStack(input, dataVersion);
+        }
+        final int inventoryCount = readVarInt(input);
+        final List<ItemStack[]> inventories = new ArrayList<>(inventoryCount);
+        for (int i = 0; i < inventoryCount; i++) {
+            final ItemStack[] items = new ItemStack[readVarInt(input)];
+            final int count = readVarInt(input);
+            for (int j = 0; j < count; j++) {
+                final int slot = readVarInt(input);
+                final int template = readVarInt(input);
+                if (slot < 0 || slot >= items.length) throw new IOException("Invalid slot " + slot + " for size " + items.length);
+                if (template < 0 || template >= templates.length) throw new IOException("Invalid item template " + template);
+                final ItemStack item = templates[template].clone();
+                item.setAmount(readVarInt(input));
+                items[slot] = item;
+            }
+            inventories.add(items);
+        }
+        return inventories;
+    }
+
+    /**
+     * Serializes many inventories in parallel on a shared pool with one thread per available processor. The pool is shut
+     * down when your plugin gets disabled. Failed inventories are logged and left out of the result. See
+     * {@link #serializeInventoriesAsync(Map, Executor, BiConsumer)}
+     *
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static <K> CompletableFuture<Map<K, byte[]>> serializeInventoriesAsync(@NotNull final Map<K, ? extends Inventory> inventories) {
+        return serializeInventories(inventories, null, (key, throwable) ->
+                JeffLib.getPlugin().getLogger().log(Level.WARNING, "Could not serialize inventory " + key, throwable));
+    }
+
+    /**
+     * Serializes many inventories in parallel. The contents are copied on the main thread (scheduled for the next tick
+     * if this isn't called from the main thread), and the copies are then encoded using {@link #writeInventory(Inventory, OutputStream)}
+     * on the given executor. The resulting byte arrays can be read using {@link #readItems(InputStream)} or {@link #readInventory(InputStream)}.
+     * <p>
+     * Every inventory is copied and encoded on its own: if one fails, the error handler is called and the inventory is
+     * left out of the result, while all other inventories are still serialized.
+     *
+     * @param inventories  inventories to serialize
+     * @param executor     executor to run the encoding on, for example a fixed thread pool to limit the amount of threads
+     * @param errorHandler called with the key and error for every inventory that couldn't be serialized, or that the executor rejected
+     * @return future that completes with the serialized inventories once all have been encoded
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static <K> CompletableFuture<Map<K, byte[]>> serializeInventoriesAsync(@NotNull final Map<K, ? extends Inventory> inventories, @NotNull final Executor executor,
+                                                                                @NotNull final BiConsumer<K, Throwable> errorHandler) {
+        return serializeInventories(inventories, Objects.requireNonNull(executor, "executor"), errorHandler);
+    }
+
+    /**
+     * @param executor executor to run the encoding on, or null to use the default pool
+     */
+    private static <K> CompletableFuture<Map<K, byte[]>> serializeInventories(final Map<K, ? extends Inventory> inventories, @Nullable final Executor executor,
+                                                                            final BiConsumer<K, Throwable> errorHandler) {
+        final CompletableFuture<Map<K, ItemStack[]>> snapshot = new CompletableFuture<>();
+        final Runnable snapshotTask = () -> {
+            try {
+                final Map<K, ItemStack[]> contents = new LinkedHashMap<>();
+                for (final Map.Entry<K, ? extends Inventory> entry : inventories.entrySet()) {
+                    try {
+                        final ItemStack[] items = entry.getValue().getContents();
+                        for (int i = 0; i < items.length; i++) {
+                            if (items[i] != null) items[i] = items[i].clone();
+                        }
+                        contents.put(entry.getKey(), items);
+                    } catch (final Throwable t) {
+                        errorHandler.accept(entry.getKey(), t);
+                    }
+                }
+                snapshot.complete(contents);
+            } catch (final Throwable t) {
+                snapshot.completeExceptionally(t);
+            }
+        };
+        if (Bukkit.isPrimaryThread()) {
+            snapshotTask.run();
+        } else {
+            Bukkit.getScheduler().runTask(JeffLib.getPlugin(), snapshotTask);
+        }
+        return snapshot.thenCompose(contents -> {
+            // Runs on the main thread, where the snapshot was taken
+            final Executor target = executor != null ? executor : getDefaultExecutor();
+            final Map<K, byte[]> result = new ConcurrentHashMap<>();
+            final CompletableFuture<?>[] tasks = new CompletableFuture<?>[contents.size()];
+            int i = 0;
+            for (final Map.Entry<K, ItemStack[]> entry : contents.entrySet()) {
+                try {
+                    tasks[i] = CompletableFuture.runAsync(() -> {
+                        try {
+                            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                            writeItems(entry.getValue(), bytes);
+                            result.put(entry.getKey(), bytes.toByteArray());
+                        } catch (final Throwable t) {
+                            errorHandler.accept(entry.getKey(), t);
+                        }
+                    }, target);
+                } catch (final RejectedExecutionException ex) {
+                    // The executor is shut down or full, which only fails this inventory
+                    errorHandler.accept(entry.getKey(), ex);
+                    tasks[i] = CompletableFuture.completedFuture(null);
+                }
+                i++;
+            }
+            return CompletableFuture.allOf(tasks).thenApply(__ -> result);
+        });
+    }
+
+    /**
+     * Returns the default pool, creating it if needed. Must be called from the main thread, because it registers the
+     * listener that shuts the pool down when the plugin gets disabled.
+     */
+    private static Executor getDefaultExecutor() {
+        ExecutorService executor = defaultExecutor;
+        if (executor != null && !executor.isShutdown()) return executor;
+        synchronized (ItemStackSerializer.class) {
+            if (defaultExecutor == null || defaultExecutor.isShutdown()) {
+                final AtomicInteger threadId = new AtomicInteger();
+                defaultExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                    final Thread thread = new Thread(runnable, "JeffLib-ItemStackSerializer-" + threadId.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                Bukkit.getPluginManager().registerEvents(new ShutdownListener(ItemStackSerializer::shutdownDefaultExecutor), JeffLib.getPlugin());
+            }
+            executor = defaultExecutor;
+        }
+        return executor;
+    }
+
+    private static void shutdownDefaultExecutor() {
+        synchronized (ItemStackSerializer.class) {
+            if (defaultExecutor == null) return;
+            // Already queued inventories are still serialized
+            defaultExecutor.shutdown();
+            defaultExecutor = null;
+        }
+    }
+
+    private static boolean isEmpty(@Nullable final ItemStack item) {
+        return item == null || item.getType().isAir() || item.getAmount() <= 0;
+    }
+
+    private static void writeVarInt(final DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("VarInt is too long");
+    }
+
+    private static boolean isCompact(final byte[] input) {
+        if (input.length < COMPACT_MAGIC.length + 5) return false;
+        for (int i = 0; i < COMPACT_MAGIC.length; i++) {
+            if (input[i] != COMPACT_MAGIC[i]) return false;
+        }
+        return true;
+    }
+
     /**
      * Turns an ItemStack into a json-formatted String
      *
@@ -249,4 +747,49 @@ public class ItemStackSerializer {
             throw new UncheckedIOException(new IOException(ex));
         }
     }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferOutputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(final int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(@NotNull final byte[] bytes, final int off, final int len) {
+            buffer.put(bytes, off, len);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(@NotNull final byte[] bytes, final int off, final int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            final int read = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
 }
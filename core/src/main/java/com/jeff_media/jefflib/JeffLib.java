@@ -19,15 +19,19 @@ package com.jeff_media.jefflib;
 
 import com.allatori.annotations.DoNotRename;
 import com.jeff_media.jefflib.data.McVersion;
+import com.jeff_media.jefflib.data.OfflinePlayerPersistentDataContainer;
 import com.jeff_media.jefflib.events.PlayerJumpEvent;
 import com.jeff_media.jefflib.events.PlayerScrollEvent;
 import com.jeff_media.jefflib.exceptions.NMSNotSupportedException;
 import com.jeff_media.jefflib.internal.annotations.Internal;
 import com.jeff_media.jefflib.internal.annotations.NMS;
 import com.jeff_media.jefflib.internal.glowenchantment.GlowEnchantmentFactory;
+import com.jeff_media.jefflib.internal.listeners.BlockTrackCacheListener;
 import com.jeff_media.jefflib.internal.listeners.BlockTrackListener;
+import com.jeff_media.jefflib.internal.listeners.OfflinePlayerPdcCacheListener;
 import com.jeff_media.jefflib.internal.listeners.PlayerScrollListener;
 import com.jeff_media.jefflib.internal.nms.AbstractNMSHandler;
+import com.jeff_media.jefflib.internal.pdc.OfflinePlayerPdcCache;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.lang.reflect.Field;
@@ -37,7 +41,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import lombok.Getter;
 import lombok.experimental.UtilityClass;
@@ -45,6 +51,7 @@ import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Main class of the library, has to be initialized for certain methods to work.
@@ -307,17 +314,52 @@ public class JeffLib {
         PlayerJumpEvent.registerListener();
     }
 
+    /**
+     * Enables caching of {@link OfflinePlayerPersistentDataContainer}s loaded through {@link OfflinePlayerPersistentDataContainer#of(UUID)}
+     * and registers the listener that removes players from the cache when they join or quit. Concurrent requests for the
+     * same player share one disk read.
+     *
+     * @param maxSize     maximum amount of cached players. The least recently used players are removed first.
+     * @param expireAfter time after which a cached player is loaded again, or 0 to keep players until they are evicted
+     * @param unit        unit of expireAfter
+     */
+    public static void registerOfflinePlayerPdcCache(final int maxSize, final long expireAfter, @NotNull final TimeUnit unit) {
+        final boolean registered = OfflinePlayerPersistentDataContainer.getCache() != null;
+        OfflinePlayerPersistentDataContainer.setCache(new OfflinePlayerPdcCache(maxSize, unit.toNanos(expireAfter)));
+        if (!registered) {
+            Bukkit.getPluginManager().registerEvents(new OfflinePlayerPdcCacheListener(OfflinePlayerPersistentDataContainer::getCache), getPlugin());
+        }
+    }
+
     /**
      * Registers the listeners needed to track blocks using {@link BlockTracker}. Requires MC version 1.16.3 or later.
      */
     public static void registerBlockTracker() {
         if (McVersion.current().isAtLeast(1, 16, 3)) {
-            Bukkit.getPluginManager().registerEvents(new BlockTrackListener(), getPlugin());
+            Bukkit.getPluginManager().registerEvents(new BlockTrackListener(BlockTracker.getRemovalQueue()), getPlugin());
+            Bukkit.getPluginManager().registerEvents(new BlockTrackCacheListener(BlockTracker::getCache, BlockTracker.getRemovalQueue()), getPlugin());
         } else {
             getPlugin().getLogger().info("You are using an MC version below 1.16.3 - Block Tracking features will be disabled.");
         }
     }
 
+    /**
+     * Registers the listeners needed to track blocks using {@link BlockTracker}, using the given {@link BlockTracker.StorageType}. Requires MC version 1.16.3 or later.
+     */
+    public static void registerBlockTracker(final BlockTracker.StorageType storageType) {
+        BlockTracker.setStorageType(storageType);
+        registerBlockTracker();
+    }
+
+    /**
+     * Registers the listeners needed to track blocks using {@link BlockTracker}, using the given {@link BlockTracker.StorageType}
+     * and optionally caching tracked blocks of loaded chunks in memory, see {@link BlockTracker#setCacheEnabled(boolean)}. Requires MC version 1.16.3 or later.
+     */
+    public static void registerBlockTracker(final BlockTracker.StorageType storageType, final boolean cache) {
+        BlockTracker.setCacheEnabled(cache);
+        registerBlockTracker(storageType);
+    }
+
     /**
      * Initializes JeffLib. Only required if you call methods requiring your plugin's instance before the plugin has been enabled
      */
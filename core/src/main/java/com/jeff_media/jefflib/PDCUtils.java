@@ -18,26 +18,51 @@
 package com.jeff_media.jefflib;
 
 import com.jeff_media.jefflib.data.OfflinePlayerPersistentDataContainer;
+import com.jeff_media.jefflib.data.OfflinePlayerScanResult;
+import com.jeff_media.jefflib.data.PdcPatch;
+import com.jeff_media.jefflib.data.PdcSchema;
+import com.jeff_media.jefflib.data.PdcUsage;
+import com.jeff_media.jefflib.data.PdcWorldUsage;
 import com.jeff_media.jefflib.exceptions.NMSNotSupportedException;
+import com.jeff_media.jefflib.internal.NamespacedKeyCache;
 import com.jeff_media.jefflib.internal.annotations.NMS;
 import com.jeff_media.jefflib.internal.cherokee.Validate;
+import com.jeff_media.jefflib.internal.pdc.OfflinePlayerScanner;
+import com.jeff_media.jefflib.internal.pdc.PdcUsageMeter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import lombok.experimental.UtilityClass;
 import org.bukkit.NamespacedKey;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataHolder;
 import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -67,7 +92,12 @@ public class PDCUtils {
             PersistentDataType.LONG_ARRAY,
             PersistentDataType.TAG_CONTAINER_ARRAY,
             PersistentDataType.TAG_CONTAINER};
-    private static final Map<String, NamespacedKey> KEYS = new HashMap<>();
+    private static final byte[] BINARY_MAGIC = {'J', 'P', 'D', 'C'};
+    private static final int BINARY_VERSION = 1;
+    private static final int BINARY_FLAG_DEFLATE = 1;
+    private static final NamespacedKeyCache KEY_CACHE = new NamespacedKeyCache(4096);
+    private static volatile PluginNamespace pluginNamespace;
+    private static volatile boolean nbtDataTypeLookup = true;
 
     private static final Method namespacedKeyFromStringMethod;
     private static final Constructor<NamespacedKey> namespacedKeyConstructor;
@@ -114,7 +144,7 @@ public class PDCUtils {
     }
 
     /**
-     * Creates a NamespacedKey from a String. This method is a workaround for the fact that {@link NamespacedKey#fromString(String)} isn't available in 1.16.4 and older, and because {@link NamespacedKey#NamespacedKey(String, String)} is deprecated.
+     * Creates a NamespacedKey from a String or returns a cached one. This method is a workaround for the fact that {@link NamespacedKey#fromString(String)} isn't available in 1.16.4 and older, and because {@link NamespacedKey#NamespacedKey(String, String)} is deprecated.
      *
      * @param namespace Namespace
      * @param key       Key
@@ -124,6 +154,11 @@ public class PDCUtils {
     public static NamespacedKey getKeyFromString(@NotNull String namespace, @NotNull String key) {
         Validate.notNull(namespace, "Namespace cannot be null");
         Validate.notNull(key, "Key cannot be null");
+        return KEY_CACHE.get(namespace, key, PDCUtils::createKeyFromString);
+    }
+
+    @Nullable
+    private static NamespacedKey createKeyFromString(@NotNull String namespace, @NotNull String key) {
         if (namespacedKeyFromStringMethod != null) {
             try {
                 return (NamespacedKey) namespacedKeyFromStringMethod.invoke(null, namespace + ":" + key);
@@ -178,13 +213,61 @@ public class PDCUtils {
     }
 
     /**
-     * Creates a NamespacedKey or returns a cached one. <b>JeffLib has to be initialized first.</b>
+     * Creates a NamespacedKey or returns a cached one. <b>JeffLib has to be initialized first.</b> Safe to call from any thread.
      *
      * @param key Key name
      * @return NamespacedKey
      */
     public static NamespacedKey getKey(final String key) {
-        return KEYS.computeIfAbsent(key, __ -> new NamespacedKey(JeffLib.getPlugin(), key));
+        final Plugin plugin = JeffLib.getPlugin();
+        PluginNamespace namespace = pluginNamespace;
+        // JeffLib might have been initialized again with another plugin
+        if (namespace == null || namespace.plugin != plugin) {
+            namespace = new PluginNamespace(plugin);
+            pluginNamespace = namespace;
+        }
+        return KEY_CACHE.get(namespace.name, key, PDCUtils::createPluginKey);
+    }
+
+    private static NamespacedKey createPluginKey(final String namespace, final String key) {
+        return new NamespacedKey(JeffLib.getPlugin(), key);
+    }
+
+    /**
+     * Returns how often {@link #getKey(String)} and {@link #getKeyFromString(String, String)} returned a cached NamespacedKey
+     *
+     * @return amount of cache hits
+     */
+    public static long getKeyCacheHits() {
+        return KEY_CACHE.getHits();
+    }
+
+    /**
+     * Returns how often {@link #getKey(String)} and {@link #getKeyFromString(String, String)} had to create a new NamespacedKey
+     *
+     * @return amount of cache misses
+     */
+    public static long getKeyCacheMisses() {
+        return KEY_CACHE.getMisses();
+    }
+
+    /**
+     * Returns the amount of cached NamespacedKeys
+     *
+     * @return amount of cached keys
+     */
+    public static int getKeyCacheSize() {
+        return KEY_CACHE.size();
+    }
+
+    /**
+     * Sets the maximum amount of cached NamespacedKeys. Defaults to 4096. When the cache is full, a key that wasn't used
+     * recently is evicted for every new key.
+     *
+     * @param maxSize maximum amount of cached keys
+     */
+    public static void setKeyCacheMaxSize(final int maxSize) {
+        KEY_CACHE.setMaxSize(maxSize);
     }
 
     /**
@@ -246,6 +329,37 @@ public class PDCUtils {
         holder.setItemMeta(meta);
     }
 
+    /**
+     * Applies any amount of changes to the ItemStack's PDC. Unlike calling the ItemStack related set and remove methods
+     * one by one, the ItemMeta is only cloned and applied once.
+     *
+     * @param item   ItemStack
+     * @param editor Consumer that changes the given PDC
+     */
+    public static void edit(@NotNull final ItemStack item, @NotNull final Consumer<PersistentDataContainer> editor) {
+        final ItemMeta meta = requireItemMeta(item);
+        editor.accept(meta.getPersistentDataContainer());
+        item.setItemMeta(meta);
+    }
+
+    /**
+     * Returns a copy of the ItemStack's PDC to read many values while only cloning the ItemMeta once. Changes to the
+     * returned PDC are not applied to the ItemStack, use {@link #edit(ItemStack, Consumer)} for that.
+     *
+     * @param item ItemStack
+     * @return Copy of the ItemStack's PDC
+     */
+    @NotNull
+    public static PersistentDataContainer view(@NotNull final ItemStack item) {
+        return requireItemMeta(item).getPersistentDataContainer();
+    }
+
+    private static ItemMeta requireItemMeta(final ItemStack item) {
+        final ItemMeta meta = item.getItemMeta();
+        Objects.requireNonNull(meta);
+        return meta;
+    }
+
     /**
      * Gets a value from the holder's PDC
      *
@@ -257,8 +371,7 @@ public class PDCUtils {
      */
     @Nullable
     public static <T, Z> Z get(@NotNull final ItemStack holder, @NotNull final String key, @NotNull final PersistentDataType<T, Z> type) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return get(holder.getItemMeta(), getKey(key), type);
+        return get(requireItemMeta(holder), getKey(key), type);
     }
 
     /**
@@ -272,8 +385,7 @@ public class PDCUtils {
      */
     @Nullable
     public static <T, Z> Z get(@NotNull final ItemStack holder, @NotNull final NamespacedKey key, @NotNull final PersistentDataType<T, Z> type) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return get(holder.getItemMeta(), key, type);
+        return get(requireItemMeta(holder), key, type);
     }
 
     /**
@@ -289,8 +401,7 @@ public class PDCUtils {
     @Nullable
     @Contract("_, _, _, !null -> !null")
     public static <T, Z> Z getOrDefault(@NotNull final ItemStack holder, @NotNull final String key, @NotNull final PersistentDataType<T, Z> type, final Z defaultValue) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return getOrDefault(holder.getItemMeta(), key, type, defaultValue);
+        return getOrDefault(requireItemMeta(holder), key, type, defaultValue);
     }
 
     /**
@@ -338,8 +449,7 @@ public class PDCUtils {
     @Nullable
     @Contract("_, _, _, !null -> !null")
     public static <T, Z> Z getOrDefault(@NotNull final ItemStack holder, @NotNull final NamespacedKey key, @NotNull final PersistentDataType<T, Z> type, final Z defaultValue) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return getOrDefault(holder.getItemMeta(), key, type, defaultValue);
+        return getOrDefault(requireItemMeta(holder), key, type, defaultValue);
     }
 
     /**
@@ -426,8 +536,7 @@ public class PDCUtils {
      * @return True when the PDC contains the key, otherwise false
      */
     public <T, Z> boolean has(@NotNull final ItemStack holder, @NotNull final String key, @NotNull final PersistentDataType<T, Z> type) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return has(holder.getItemMeta(), getKey(key), type);
+        return has(requireItemMeta(holder), getKey(key), type);
     }
 
     /**
@@ -440,8 +549,7 @@ public class PDCUtils {
      * @return True when the PDC contains the key, otherwise false
      */
     public <T, Z> boolean has(@NotNull final ItemStack holder, @NotNull final String key) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return has(holder.getItemMeta(), getKey(key));
+        return has(requireItemMeta(holder), getKey(key));
     }
 
     /**
@@ -482,8 +590,7 @@ public class PDCUtils {
      * @return True when the PDC contains the key, otherwise false
      */
     public <T, Z> boolean has(@NotNull final ItemStack holder, @NotNull final NamespacedKey key, @NotNull final PersistentDataType<T, Z> type) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return has(holder.getItemMeta(), key, type);
+        return has(requireItemMeta(holder), key, type);
     }
 
     /**
@@ -496,8 +603,7 @@ public class PDCUtils {
      * @return True when the PDC contains the key, otherwise false
      */
     public <T, Z> boolean has(@NotNull final ItemStack holder, @NotNull final NamespacedKey key) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return has(holder.getItemMeta(), key);
+        return has(requireItemMeta(holder), key);
     }
 
     /**
@@ -508,8 +614,7 @@ public class PDCUtils {
      */
     @NotNull
     public Set<NamespacedKey> getKeys(@NotNull final ItemStack holder) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return getKeys(holder.getItemMeta());
+        return getKeys(requireItemMeta(holder));
     }
 
     /**
@@ -530,8 +635,7 @@ public class PDCUtils {
      * @return True when the holder's PDC is empty, otherwise false
      */
     public static boolean isEmpty(@NotNull final ItemStack holder) {
-        Objects.requireNonNull(holder.getItemMeta());
-        return isEmpty(holder.getItemMeta());
+        return isEmpty(requireItemMeta(holder));
     }
 
     /**
@@ -560,17 +664,119 @@ public class PDCUtils {
     }
 
     /**
-     * Gets the proper primitive {@link PersistentDataType} for the given {@link NamespacedKey} in the given {@link PersistentDataContainer}
+     * Gets the proper primitive {@link PersistentDataType} for the given {@link NamespacedKey} in the given {@link PersistentDataContainer}.
+     * When NMS is available, this reads the NBT tag's type directly instead of trying every type.
      *
      * @return The primitive PersistentDataType for the given key, or null if the key doesn't exist
      */
     public static PersistentDataType<?, ?> getDataType(@NotNull final PersistentDataContainer pdc, @NotNull final NamespacedKey key) {
+        final PersistentDataContainer craftPdc = pdc instanceof OfflinePlayerPersistentDataContainer
+                ? (PersistentDataContainer) ((OfflinePlayerPersistentDataContainer) pdc).getCraftPersistentDataContainer() : pdc;
+        if (nbtDataTypeLookup && craftPersistentDataContainerConstructor != null
+                && craftPersistentDataContainerConstructor.getDeclaringClass().isInstance(craftPdc)) {
+            try {
+                return getDataTypeForTag(JeffLib.getNMSHandler().getPdcTagType(craftPdc, key));
+            } catch (NMSNotSupportedException ex) {
+                nbtDataTypeLookup = false;
+            }
+        }
         for (PersistentDataType<?, ?> dataType : PRIMITIVE_DATA_TYPES) {
             if (pdc.has(key, dataType)) return dataType;
         }
         return null;
     }
 
+    @Nullable
+    private static PersistentDataType<?, ?> getDataTypeForTag(final int tagType) {
+        switch (tagType) {
+            case 1:
+                return PersistentDataType.BYTE;
+            case 2:
+                return PersistentDataType.SHORT;
+            case 3:
+                return PersistentDataType.INTEGER;
+            case 4:
+                return PersistentDataType.LONG;
+            case 5:
+                return PersistentDataType.FLOAT;
+            case 6:
+                return PersistentDataType.DOUBLE;
+            case 7:
+                return PersistentDataType.BYTE_ARRAY;
+            case 8:
+                return PersistentDataType.STRING;
+            case 9:
+                return PersistentDataType.TAG_CONTAINER_ARRAY;
+            case 10:
+                return PersistentDataType.TAG_CONTAINER;
+            case 11:
+                return PersistentDataType.INTEGER_ARRAY;
+            case 12:
+                return PersistentDataType.LONG_ARRAY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the changes needed to turn one PersistentDataContainer into another. Nested containers are compared recursively.
+     *
+     * @see #apply(PdcPatch, PersistentDataContainer)
+     */
+    @NotNull
+    public static PdcPatch diff(@NotNull final PersistentDataContainer from, @NotNull final PersistentDataContainer to) {
+        return PdcPatch.diff(from, to);
+    }
+
+    /**
+     * Applies a patch created by {@link #diff(PersistentDataContainer, PersistentDataContainer)} to the given PersistentDataContainer
+     */
+    public static void apply(@NotNull final PdcPatch patch, @NotNull final PersistentDataContainer target) {
+        patch.apply(target);
+    }
+
+    /**
+     * Returns the serialized size of the given PersistentDataContainer's entries, per namespace and per key
+     *
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static PdcUsage getUsage(@NotNull final PersistentDataContainer pdc) {
+        final PdcUsage usage = new PdcUsage();
+        final byte[] nbt = PdcUsageMeter.snapshot(pdc);
+        if (nbt == null) return usage;
+        try {
+            PdcUsageMeter.measure(nbt, usage);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return usage;
+    }
+
+    /**
+     * Returns the serialized size of the given PersistentDataHolder's entries, per namespace and per key
+     *
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static PdcUsage getUsage(@NotNull final PersistentDataHolder holder) {
+        return getUsage(holder.getPersistentDataContainer());
+    }
+
+    /**
+     * Measures the PDCs of all loaded chunks, entities and tile entities in the given world. The PDCs are copied on the
+     * main thread (scheduled for the next tick if this isn't called from the main thread) and measured asynchronously.
+     *
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static CompletableFuture<PdcWorldUsage> getUsageReport(@NotNull final World world) {
+        return PdcUsageMeter.report(world);
+    }
+
     /**
      * Turns a PersistentDataContainer into String
      *
@@ -595,6 +801,82 @@ public class PDCUtils {
         }
     }
 
+    /**
+     * Turns a PersistentDataContainer into binary NBT, see {@link #serializeToBytes(PersistentDataContainer, boolean)}
+     *
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static byte[] serializeToBytes(@NotNull final PersistentDataContainer pdc) {
+        return serializeToBytes(pdc, false);
+    }
+
+    /**
+     * Turns a PersistentDataContainer into binary NBT. This is faster and smaller than {@link #serialize(PersistentDataContainer)}.
+     * The result starts with the bytes "JPDC", followed by a format version byte and a flags byte, followed by the
+     * (optionally deflated) NBT data. Use {@link #deserializeFromBytes(byte[], PersistentDataContainer)} to load it again.
+     *
+     * @param pdc      PersistentDataContainer to serialize
+     * @param compress Whether to deflate the NBT data
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static byte[] serializeToBytes(@NotNull final PersistentDataContainer pdc, final boolean compress) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(BINARY_MAGIC, 0, BINARY_MAGIC.length);
+        bytes.write(BINARY_VERSION);
+        bytes.write(compress ? BINARY_FLAG_DEFLATE : 0);
+        try (final DataOutputStream output = new DataOutputStream(compress ? new DeflaterOutputStream(bytes) : bytes)) {
+            JeffLib.getNMSHandler().writePdc(pdc, output);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not serialize PDC", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Loads bytes from {@link PDCUtils#serializeToBytes(PersistentDataContainer, boolean)} into a PersistentDataContainer, overwriting already existing keys of the same name
+     *
+     * @throws IOException When the bytes cannot be deserialized
+     * @nms
+     */
+    @NMS
+    public static void deserializeFromBytes(@NotNull final byte[] serializedPdc, @NotNull final PersistentDataContainer target) throws IOException {
+        if (serializedPdc.length < BINARY_MAGIC.length + 2) {
+            throw new IOException("Serialized PDC is too short");
+        }
+        for (int i = 0; i < BINARY_MAGIC.length; i++) {
+            if (serializedPdc[i] != BINARY_MAGIC[i]) throw new IOException("Not a serialized PDC");
+        }
+        final int version = serializedPdc[BINARY_MAGIC.length];
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported serialized PDC version: " + version);
+        }
+        final int flags = serializedPdc[BINARY_MAGIC.length + 1];
+        final int headerLength = BINARY_MAGIC.length + 2;
+        final InputStream payload = new ByteArrayInputStream(serializedPdc, headerLength, serializedPdc.length - headerLength);
+        try (final DataInputStream input = new DataInputStream((flags & BINARY_FLAG_DEFLATE) != 0 ? new InflaterInputStream(payload) : payload)) {
+            JeffLib.getNMSHandler().readPdc(input, target);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not deserialize PDC", e);
+        }
+    }
+
+
+    /**
+     * Starts building a {@link PdcSchema} that reads and writes whole objects of the given type
+     *
+     * @param type    class of the stored objects
+     * @param factory creates an empty object when reading
+     */
+    @NotNull
+    public static <T> PdcSchema.Builder<T> schema(@NotNull final Class<T> type, @NotNull final Supplier<T> factory) {
+        return PdcSchema.builder(type, factory);
+    }
 
     /**
      * Returns an OfflinePlayer's {@link PersistentDataContainer}.&nbsp;<b>Important: </b>When doing changes to the PDC, you must call {@link OfflinePlayerPersistentDataContainer#save()} or {@link OfflinePlayerPersistentDataContainer#saveAsync()} to save the changes.
@@ -620,4 +902,66 @@ public class PDCUtils {
         return OfflinePlayerPersistentDataContainer.of(player);
     }
 
+    /**
+     * Scans the PDCs of all offline players in parallel, using one worker per available processor. See {@link #scanOfflinePlayers(Predicate, BiConsumer, Executor, int)}
+     *
+     * @nms
+     */
+    @NotNull
+    @NMS
+    public static CompletableFuture<OfflinePlayerScanResult> scanOfflinePlayers(@NotNull final Predicate<NamespacedKey> keyFilter, @NotNull final BiConsumer<UUID, PersistentDataContainer> consumer) {
+        return scanOfflinePlayers(keyFilter, consumer, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Scans the PDCs of all offline players in parallel on a temporary thread pool of the given size. See {@link #scanOfflinePlayers(Predicate, BiConsumer, Executor, int)}
+     *
+     * @nms
+     */
+    @NotNull
+    @NMS
+    public static CompletableFuture<OfflinePlayerScanResult> scanOfflinePlayers(@NotNull final Predicate<NamespacedKey> keyFilter, @NotNull final BiConsumer<UUID, PersistentDataContainer> consumer, final int parallelism) {
+        final AtomicInteger threadId = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            final Thread thread = new Thread(runnable, "JeffLib-OfflinePlayerScanner-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletableFuture<OfflinePlayerScanResult> future = scanOfflinePlayers(keyFilter, consumer, executor, parallelism);
+        future.whenComplete((result, throwable) -> executor.shutdown());
+        return future;
+    }
+
+    /**
+     * Scans the data files of all offline players without loading them into the server. Every file is only read once,
+     * and only the PDC entries whose key matches the given filter are loaded. Players without any matching entries are skipped.
+     * <p>
+     * <b>Important:</b> The consumer is called concurrently from the executor's threads, and the given PDCs are only copies - changes are not saved.
+     *
+     * @param keyFilter   which keys to load
+     * @param consumer    called with the UUID and the matching entries of every player that has at least one matching entry
+     * @param executor    executor to run the workers on
+     * @param parallelism amount of workers to submit to the executor
+     * @return a future that completes with statistics about the scan once all files have been read
+     * @nms
+     */
+    @NotNull
+    @NMS
+    public static CompletableFuture<OfflinePlayerScanResult> scanOfflinePlayers(@NotNull final Predicate<NamespacedKey> keyFilter, @NotNull final BiConsumer<UUID, PersistentDataContainer> consumer, @NotNull final Executor executor, final int parallelism) {
+        return new OfflinePlayerScanner(ProfileUtils.getPlayerDataFolder(), keyFilter, consumer).run(executor, parallelism);
+    }
+
+    /**
+     * The lowercase namespace of the plugin JeffLib was initialized with
+     */
+    private static final class PluginNamespace {
+        private final Plugin plugin;
+        private final String name;
+
+        private PluginNamespace(final Plugin plugin) {
+            this.plugin = plugin;
+            this.name = plugin.getName().toLowerCase(Locale.ROOT);
+        }
+    }
+
 }
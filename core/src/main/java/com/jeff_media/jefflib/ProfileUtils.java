@@ -53,10 +53,21 @@ public final class ProfileUtils {
     @NMS
     @NotNull
     public static File getPlayerDataFile(UUID uuid) {
+        return new File(getPlayerDataFolder(), uuid.toString() + ".dat");
+    }
+
+    /**
+     * Returns the folder containing all players' data (.dat) files
+     *
+     * @nms
+     */
+    @NMS
+    @NotNull
+    public static File getPlayerDataFolder() {
         File playerDataFolder = new File(WorldUtils.getDefaultWorld().getWorldFolder(), "playerdata");
         if (!playerDataFolder.exists()) {
             playerDataFolder.mkdirs();
         }
-        return new File(playerDataFolder, uuid.toString() + ".dat");
+        return playerDataFolder;
     }
 }
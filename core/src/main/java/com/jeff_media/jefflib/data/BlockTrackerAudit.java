@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.blocktracker.ChunkMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Result of a {@link com.jeff_media.jefflib.BlockTracker} audit, containing the amount of player placed blocks per chunk
+ *
+ * @see com.jeff_media.jefflib.BlockTracker#auditWorld(World, java.util.function.BiConsumer)
+ */
+public final class BlockTrackerAudit {
+
+    private final World world;
+    private final Map<Long, Integer> counts;
+    private final int scannedChunks;
+    private final int failedChunks;
+    private final long total;
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public BlockTrackerAudit(@NotNull final World world, @NotNull final Map<Long, Integer> counts, final int scannedChunks, final int failedChunks) {
+        this.world = world;
+        this.counts = counts;
+        this.scannedChunks = scannedChunks;
+        this.failedChunks = failedChunks;
+        long total = 0;
+        for (final int count : counts.values()) {
+            total += count;
+        }
+        this.total = total;
+    }
+
+    /**
+     * Returns the audited world
+     */
+    @NotNull
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns the total amount of player placed blocks in all scanned chunks
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the amount of chunks that have been scanned, including chunks without player placed blocks
+     */
+    public int getScannedChunks() {
+        return scannedChunks;
+    }
+
+    /**
+     * Returns the amount of chunks whose data couldn't be read
+     */
+    public int getFailedChunks() {
+        return failedChunks;
+    }
+
+    /**
+     * Returns the amount of chunks containing at least one player placed block
+     */
+    public int getChunksWithBlocks() {
+        return counts.size();
+    }
+
+    /**
+     * Returns the amount of player placed blocks in the given chunk
+     */
+    public int getCount(final int chunkX, final int chunkZ) {
+        final Integer count = counts.get(ChunkMap.getKey(chunkX, chunkZ));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Calls the consumer with the chunk X coordinate, chunk Z coordinate and amount of player placed blocks of every
+     * chunk containing at least one player placed block
+     */
+    public void forEachChunk(@NotNull final IntTriConsumer consumer) {
+        for (final Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            final long key = entry.getKey();
+            consumer.accept(ChunkMap.getChunkX(key), ChunkMap.getChunkZ(key), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the chunks containing the most player placed blocks, sorted by amount in descending order. The amount of
+     * each chunk is its amount of player placed blocks.
+     *
+     * @param limit maximum amount of chunks to return
+     */
+    @NotNull
+    public List<ChunkAmount> getTopChunks(final int limit) {
+        final List<ChunkAmount> chunks = new ArrayList<>(counts.size());
+        forEachChunk((chunkX, chunkZ, count) -> chunks.add(new ChunkAmount(chunkX, chunkZ, count)));
+        chunks.sort((first, second) -> Long.compare(second.getAmount(), first.getAmount()));
+        return Collections.unmodifiableList(chunks.subList(0, Math.min(limit, chunks.size())));
+    }
+
+    @Override
+    public String toString() {
+        return "BlockTrackerAudit{" +
+                "world=" + world.getName() +
+                ", total=" + total +
+                ", chunksWithBlocks=" + counts.size() +
+                ", scannedChunks=" + scannedChunks +
+                ", failedChunks=" + failedChunks +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+
+/**
+ * Immutable amount belonging to a chunk, for example the amount of bytes or blocks of a chunk in a report
+ *
+ * @see PdcWorldUsage#getTopChunks(int)
+ * @see BlockTrackerAudit#getTopChunks(int)
+ */
+public final class ChunkAmount {
+
+    private final int chunkX;
+    private final int chunkZ;
+    private final long amount;
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public ChunkAmount(final int chunkX, final int chunkZ, final long amount) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.amount = amount;
+    }
+
+    /**
+     * Returns the chunk X coordinate
+     */
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    /**
+     * Returns the chunk Z coordinate
+     */
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * Returns the amount belonging to this chunk
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 * chunkX + chunkZ;
+        return 31 * result + Long.hashCode(amount);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final ChunkAmount that = (ChunkAmount) o;
+        return chunkX == that.chunkX && chunkZ == that.chunkZ && amount == that.amount;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkAmount{" + "chunkX=" + chunkX + ", chunkZ=" + chunkZ + ", amount=" + amount + '}';
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+/**
+ * Represents an operation that accepts three int arguments, e.g. block coordinates, without boxing them
+ */
+@FunctionalInterface
+public interface IntTriConsumer {
+
+    /**
+     * Performs this operation on the given arguments
+     *
+     * @param first  first argument
+     * @param second second argument
+     * @param third  third argument
+     */
+    void accept(int first, int second, int third);
+
+}
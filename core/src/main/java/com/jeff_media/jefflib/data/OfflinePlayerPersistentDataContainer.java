@@ -18,22 +18,30 @@
 package com.jeff_media.jefflib.data;
 
 import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.PDCUtils;
 import com.jeff_media.jefflib.ProfileUtils;
 import com.jeff_media.jefflib.ReflUtils;
 import com.jeff_media.jefflib.internal.annotations.Internal;
 import com.jeff_media.jefflib.internal.annotations.NMS;
 import com.jeff_media.jefflib.internal.annotations.Paper;
+import com.jeff_media.jefflib.internal.nbt.PlayerDataReader;
+import com.jeff_media.jefflib.internal.pdc.OfflinePlayerPdcCache;
+import com.jeff_media.jefflib.internal.pdc.OfflinePlayerSaveQueue;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.persistence.PersistentDataAdapterContext;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Represents a {@link PersistentDataContainer} from an {@link org.bukkit.OfflinePlayer}. <b>Important:</b> When changing values, you have to call {@link #save()} or {@link #saveAsync()} afterwards.
@@ -43,19 +51,19 @@ import org.jetbrains.annotations.NotNull;
 @NMS
 public class OfflinePlayerPersistentDataContainer implements PersistentDataContainer {
 
+    private static volatile OfflinePlayerPdcCache cache;
+
     private final PersistentDataContainer craftPersistentDataContainer;
     private final File file;
-    private final Object compoundTag;
 
     /**
      * @internal
      * @internal For internal use only
      */
     @Internal
-    public OfflinePlayerPersistentDataContainer(@NotNull PersistentDataContainer craftPersistentDataContainer, @NotNull File file, @NotNull Object compoundTag) {
+    public OfflinePlayerPersistentDataContainer(@NotNull PersistentDataContainer craftPersistentDataContainer, @NotNull File file) {
         this.craftPersistentDataContainer = craftPersistentDataContainer;
         this.file = file;
-        this.compoundTag = compoundTag;
     }
 
     /**
@@ -67,15 +75,35 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     @NotNull
     @NMS
     public static CompletableFuture<OfflinePlayerPersistentDataContainer> of(UUID uuid) {
+        final OfflinePlayerPdcCache cache = OfflinePlayerPersistentDataContainer.cache;
+        if (cache != null) {
+            return cache.get(uuid, OfflinePlayerPersistentDataContainer::load);
+        }
+        return load(uuid);
+    }
+
+    private static CompletableFuture<OfflinePlayerPersistentDataContainer> load(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return JeffLib.getNMSHandler().getPDCFromDatFile(ProfileUtils.getPlayerDataFile(uuid));
+                return read(ProfileUtils.getPlayerDataFile(uuid));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         });
     }
 
+    /**
+     * Reads only the "BukkitValues" compound from the given file, skipping the inventory and all other data
+     */
+    private static OfflinePlayerPersistentDataContainer read(File file) throws IOException {
+        final PersistentDataContainer container = PDCUtils.createPersistentDataContainer();
+        final byte[] bukkitValues = PlayerDataReader.readBukkitValues(file, null);
+        if (bukkitValues != null) {
+            JeffLib.getNMSHandler().readPdc(new DataInputStream(new ByteArrayInputStream(bukkitValues)), container);
+        }
+        return new OfflinePlayerPersistentDataContainer(container, file);
+    }
+
     /**
      * Returns an OfflinePlayer's {@link PersistentDataContainer}.&nbsp;<b>Important: </b>When doing changes to the PDC, you must call {@link OfflinePlayerPersistentDataContainer#save()} or {@link OfflinePlayerPersistentDataContainer#saveAsync()} to save the changes.
      * The player's .dat file must already exist, i.e. it doesn't work for players who have never joined before.
@@ -89,15 +117,24 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     }
 
     /**
-     * For internal use only
+     * Returns the cache used by {@link #of(UUID)}, or null if caching is disabled
      *
-     * @internal
      * @internal For internal use only
      */
-    @Deprecated
     @Internal
-    public Object getCraftPersistentDataContainer() {
-        return craftPersistentDataContainer;
+    @Nullable
+    public static OfflinePlayerPdcCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the cache used by {@link #of(UUID)}, or null to disable caching. See {@link JeffLib#registerOfflinePlayerPdcCache(int, long, TimeUnit)}
+     *
+     * @internal For internal use only
+     */
+    @Internal
+    public static void setCache(@Nullable final OfflinePlayerPdcCache cache) {
+        OfflinePlayerPersistentDataContainer.cache = cache;
     }
 
     /**
@@ -108,8 +145,8 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
      */
     @Deprecated
     @Internal
-    public Object getCompoundTag() {
-        return compoundTag;
+    public Object getCraftPersistentDataContainer() {
+        return craftPersistentDataContainer;
     }
 
     /**
@@ -120,23 +157,51 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     }
 
     /**
-     * Saves the data to the player's file. This will overwrite any changes made to the original file that happened after
-     * creating this instance.
+     * Returns the UUID of the player this data belongs to
+     */
+    @NotNull
+    public UUID getUniqueId() {
+        final String name = file.getName();
+        return UUID.fromString(name.substring(0, name.length() - ".dat".length()));
+    }
+
+    /**
+     * Saves the data to the player's file on the calling thread. Only the player's PDC is replaced, the rest of the file
+     * is read again right before writing, so other changes made to the file in the meantime are kept. The data is written
+     * to a temporary file first that then replaces the original file, so a crash never leaves a corrupted file behind.
+     * <p>
+     * This doesn't wait for queued saves of other players. A queued save of the same player is written by this call instead.
+     *
+     * @throws IllegalStateException if the player is online
      */
     public void save() {
         try {
-            JeffLib.getNMSHandler().updatePdcInDatFile(this);
+            OfflinePlayerSaveQueue.saveNow(this);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Saves the data to the player's file. This will overwrite any changes made to the original file that happened after
-     * creating this instance.
+     * Saves the data to the player's file without blocking. Only the player's PDC is replaced, the rest of the file is read
+     * again right before writing, so other changes made to the file in the meantime are kept.
+     * <p>
+     * Saves are queued and written one after another. Saving the same player again before the previous save was written
+     * only writes the file once. The data is written to a temporary file first that then replaces the original file, so
+     * a crash never leaves a corrupted file behind. The returned future completes exceptionally with an {@link IllegalStateException}
+     * if the player is online, as the server would overwrite the file anyway.
      */
     public CompletableFuture<Void> saveAsync() {
-        return CompletableFuture.runAsync(this::save);
+        return OfflinePlayerSaveQueue.save(this);
+    }
+
+    /**
+     * Returns a future that completes once all saves that are queued at the moment have been written. Plugins should
+     * wait for it in onDisable to make sure that no data is lost.
+     */
+    @NotNull
+    public static CompletableFuture<Void> flushPendingSaves() {
+        return OfflinePlayerSaveQueue.flush();
     }
 
     @Override
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Result of scanning all offline players' PersistentDataContainers
+ *
+ * @see com.jeff_media.jefflib.PDCUtils#scanOfflinePlayers(java.util.function.Predicate, java.util.function.BiConsumer)
+ */
+public final class OfflinePlayerScanResult {
+
+    private final int scannedFiles;
+    private final int matchedPlayers;
+    private final long bytesRead;
+    private final long durationNanos;
+    private final Map<UUID, Exception> errors;
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public OfflinePlayerScanResult(final int scannedFiles, final int matchedPlayers, final long bytesRead, final long durationNanos, @NotNull final Map<UUID, Exception> errors) {
+        this.scannedFiles = scannedFiles;
+        this.matchedPlayers = matchedPlayers;
+        this.bytesRead = bytesRead;
+        this.durationNanos = durationNanos;
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Returns the amount of player data files that have been scanned, including files that couldn't be read
+     */
+    public int getScannedFiles() {
+        return scannedFiles;
+    }
+
+    /**
+     * Returns the amount of players whose PDC contained at least one matching key
+     */
+    public int getMatchedPlayers() {
+        return matchedPlayers;
+    }
+
+    /**
+     * Returns the total size of all scanned player data files in bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns how long the scan took in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationNanos / 1_000_000L;
+    }
+
+    /**
+     * Returns the amount of scanned player data files per second
+     */
+    public double getFilesPerSecond() {
+        return durationNanos == 0 ? 0 : scannedFiles / (durationNanos / 1_000_000_000D);
+    }
+
+    /**
+     * Returns the players whose data couldn't be read, and the reason
+     */
+    @NotNull
+    public Map<UUID, Exception> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "OfflinePlayerScanResult{" +
+                "scannedFiles=" + scannedFiles +
+                ", matchedPlayers=" + matchedPlayers +
+                ", bytesRead=" + bytesRead +
+                ", durationMillis=" + getDurationMillis() +
+                ", errors=" + errors.size() +
+                '}';
+    }
+}
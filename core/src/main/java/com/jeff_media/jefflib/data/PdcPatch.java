@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.PDCUtils;
+import com.jeff_media.jefflib.internal.cherokee.Validate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The changes needed to turn one {@link PersistentDataContainer} into another, see {@link PDCUtils#diff(PersistentDataContainer, PersistentDataContainer)}.
+ * Nested containers are diffed recursively, so changing one value inside a nested container doesn't include the whole nested container.
+ * <p>
+ * Patches can be turned into a PersistentDataContainer using {@link #toPersistentDataContainer(PersistentDataAdapterContext)},
+ * for example to store or send them using {@link PDCUtils#serializeToBytes(PersistentDataContainer)}.
+ */
+public final class PdcPatch {
+
+    private static final NamespacedKey SET_KEY = Objects.requireNonNull(PDCUtils.getKeyFromString("jefflib", "set"));
+    private static final NamespacedKey REMOVE_KEY = Objects.requireNonNull(PDCUtils.getKeyFromString("jefflib", "remove"));
+    private static final NamespacedKey NESTED_KEY = Objects.requireNonNull(PDCUtils.getKeyFromString("jefflib", "nested"));
+
+    private final Map<NamespacedKey, Value> set;
+    private final Set<NamespacedKey> removed;
+    private final Map<NamespacedKey, PdcPatch> nested;
+
+    private PdcPatch(final Map<NamespacedKey, Value> set, final Set<NamespacedKey> removed, final Map<NamespacedKey, PdcPatch> nested) {
+        this.set = set;
+        this.removed = removed;
+        this.nested = nested;
+    }
+
+    /**
+     * Creates a patch that turns the first container into the second one
+     */
+    @NotNull
+    public static PdcPatch diff(@NotNull final PersistentDataContainer from, @NotNull final PersistentDataContainer to) {
+        final Map<NamespacedKey, Value> set = new LinkedHashMap<>();
+        final Set<NamespacedKey> removed = new LinkedHashSet<>();
+        final Map<NamespacedKey, PdcPatch> nested = new LinkedHashMap<>();
+        final Set<NamespacedKey> fromKeys = from.getKeys();
+        final Set<NamespacedKey> toKeys = to.getKeys();
+        for (final NamespacedKey key : toKeys) {
+            final PersistentDataType<?, ?> toType = PDCUtils.getDataType(to, key);
+            Validate.notNull(toType, "Could not find data type for key " + key);
+            final Object toValue = to.get(key, toType);
+            final PersistentDataType<?, ?> fromType = fromKeys.contains(key) ? PDCUtils.getDataType(from, key) : null;
+            if (fromType == PersistentDataType.TAG_CONTAINER && toType == PersistentDataType.TAG_CONTAINER) {
+                final PdcPatch patch = diff((PersistentDataContainer) from.get(key, fromType), (PersistentDataContainer) toValue);
+                if (!patch.isEmpty()) nested.put(key, patch);
+            } else if (fromType != toType || !valueEquals(toType, from.get(key, fromType), toValue)) {
+                set.put(key, new Value(toType, toValue));
+            }
+        }
+        for (final NamespacedKey key : fromKeys) {
+            if (!toKeys.contains(key)) removed.add(key);
+        }
+        return new PdcPatch(set, removed, nested);
+    }
+
+    /**
+     * Compares two values of the same type by content. Container arrays are compared element-wise, because containers
+     * don't necessarily implement equals.
+     */
+    private static boolean valueEquals(final PersistentDataType<?, ?> type, final Object from, final Object to) {
+        if (type != PersistentDataType.TAG_CONTAINER_ARRAY) return Objects.deepEquals(from, to);
+        final PersistentDataContainer[] fromArray = (PersistentDataContainer[]) from;
+        final PersistentDataContainer[] toArray = (PersistentDataContainer[]) to;
+        if (fromArray == null || toArray == null || fromArray.length != toArray.length) return fromArray == toArray;
+        for (int i = 0; i < fromArray.length; i++) {
+            if (!diff(fromArray[i], toArray[i]).isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a patch from a container created by {@link #toPersistentDataContainer(PersistentDataAdapterContext)}
+     */
+    @NotNull
+    public static PdcPatch fromPersistentDataContainer(@NotNull final PersistentDataContainer pdc) {
+        final Map<NamespacedKey, Value> set = new LinkedHashMap<>();
+        final Set<NamespacedKey> removed = new LinkedHashSet<>();
+        final Map<NamespacedKey, PdcPatch> nested = new LinkedHashMap<>();
+        final PersistentDataContainer setContainer = pdc.get(SET_KEY, PersistentDataType.TAG_CONTAINER);
+        if (setContainer != null) {
+            for (final NamespacedKey key : setContainer.getKeys()) {
+                final PersistentDataType<?, ?> type = PDCUtils.getDataType(setContainer, key);
+                Validate.notNull(type, "Could not find data type for key " + key);
+                set.put(key, new Value(type, setContainer.get(key, type)));
+            }
+        }
+        final PersistentDataContainer removeContainer = pdc.get(REMOVE_KEY, PersistentDataType.TAG_CONTAINER);
+        if (removeContainer != null) {
+            removed.addAll(removeContainer.getKeys());
+        }
+        final PersistentDataContainer nestedContainer = pdc.get(NESTED_KEY, PersistentDataType.TAG_CONTAINER);
+        if (nestedContainer != null) {
+            for (final NamespacedKey key : nestedContainer.getKeys()) {
+                nested.put(key, fromPersistentDataContainer(Objects.requireNonNull(nestedContainer.get(key, PersistentDataType.TAG_CONTAINER))));
+            }
+        }
+        return new PdcPatch(set, removed, nested);
+    }
+
+    /**
+     * Returns whether this patch doesn't change anything
+     */
+    public boolean isEmpty() {
+        return set.isEmpty() && removed.isEmpty() && nested.isEmpty();
+    }
+
+    /**
+     * Returns the keys whose values are added or replaced
+     */
+    @NotNull
+    public Set<NamespacedKey> getSetKeys() {
+        return Collections.unmodifiableSet(set.keySet());
+    }
+
+    /**
+     * Returns the keys that are removed
+     */
+    @NotNull
+    public Set<NamespacedKey> getRemovedKeys() {
+        return Collections.unmodifiableSet(removed);
+    }
+
+    /**
+     * Returns the patches for nested containers
+     */
+    @NotNull
+    public Map<NamespacedKey, PdcPatch> getNestedPatches() {
+        return Collections.unmodifiableMap(nested);
+    }
+
+    /**
+     * Applies this patch to the given container
+     */
+    @SuppressWarnings("unchecked")
+    public void apply(@NotNull final PersistentDataContainer target) {
+        for (final NamespacedKey key : removed) {
+            target.remove(key);
+        }
+        for (final Map.Entry<NamespacedKey, Value> entry : set.entrySet()) {
+            target.set(entry.getKey(), (PersistentDataType<Object, Object>) entry.getValue().type, entry.getValue().value);
+        }
+        for (final Map.Entry<NamespacedKey, PdcPatch> entry : nested.entrySet()) {
+            PersistentDataContainer container = target.get(entry.getKey(), PersistentDataType.TAG_CONTAINER);
+            if (container == null) {
+                container = target.getAdapterContext().newPersistentDataContainer();
+            }
+            entry.getValue().apply(container);
+            target.set(entry.getKey(), PersistentDataType.TAG_CONTAINER, container);
+        }
+    }
+
+    /**
+     * Turns this patch into a PersistentDataContainer. It can be read again using {@link #fromPersistentDataContainer(PersistentDataContainer)}.
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public PersistentDataContainer toPersistentDataContainer(@NotNull final PersistentDataAdapterContext context) {
+        final PersistentDataContainer pdc = context.newPersistentDataContainer();
+        if (!set.isEmpty()) {
+            final PersistentDataContainer setContainer = context.newPersistentDataContainer();
+            for (final Map.Entry<NamespacedKey, Value> entry : set.entrySet()) {
+                setContainer.set(entry.getKey(), (PersistentDataType<Object, Object>) entry.getValue().type, entry.getValue().value);
+            }
+            pdc.set(SET_KEY, PersistentDataType.TAG_CONTAINER, setContainer);
+        }
+        if (!removed.isEmpty()) {
+            final PersistentDataContainer removeContainer = context.newPersistentDataContainer();
+            for (final NamespacedKey key : removed) {
+                removeContainer.set(key, PersistentDataType.BYTE, (byte) 1);
+            }
+            pdc.set(REMOVE_KEY, PersistentDataType.TAG_CONTAINER, removeContainer);
+        }
+        if (!nested.isEmpty()) {
+            final PersistentDataContainer nestedContainer = context.newPersistentDataContainer();
+            for (final Map.Entry<NamespacedKey, PdcPatch> entry : nested.entrySet()) {
+                nestedContainer.set(entry.getKey(), PersistentDataType.TAG_CONTAINER, entry.getValue().toPersistentDataContainer(context));
+            }
+            pdc.set(NESTED_KEY, PersistentDataType.TAG_CONTAINER, nestedContainer);
+        }
+        return pdc;
+    }
+
+    @Override
+    public String toString() {
+        return "PdcPatch{set=" + set.keySet() + ", removed=" + removed + ", nested=" + nested + "}";
+    }
+
+    private static final class Value {
+        private final PersistentDataType<?, ?> type;
+        private final Object value;
+
+        private Value(final PersistentDataType<?, ?> type, final Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.PDCUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Binds the fields of an object to {@link PersistentDataContainer} keys, so that whole objects can be read and written at once.
+ * The keys and types are resolved once when the schema is built, reading and writing only calls the given getters and setters.
+ * <p>
+ * A schema can either read and write an object directly into a container using {@link #read(PersistentDataContainer)} and
+ * {@link #write(PersistentDataContainer, Object)}, or be used as {@link PersistentDataType} to store an object as nested container.
+ * <p>
+ * Every object is stored together with the schema's version. When reading data of an older version, the registered migrations are applied
+ * to a copy of the data first. Reading never changes the container, use {@link #migrate(PersistentDataContainer)} to store the migrated data.
+ * <p>
+ * <b>Example:</b>
+ * <pre>
+ * PdcSchema&lt;QuestProgress&gt; schema = PDCUtils.schema(QuestProgress.class, QuestProgress::new)
+ *     .version(2)
+ *     .field("stage", PersistentDataType.INTEGER, QuestProgress::getStage, QuestProgress::setStage)
+ *     .field("kills", PersistentDataType.LONG, QuestProgress::getKills, QuestProgress::setKills)
+ *     .migrate(1, pdc -&gt; pdc.set(PDCUtils.getKey("kills"), PersistentDataType.LONG, 0L))
+ *     .build();
+ *
+ * player.getPersistentDataContainer().set(PDCUtils.getKey("quest"), schema, progress);
+ * </pre>
+ *
+ * @param <T> type of the stored objects
+ */
+public final class PdcSchema<T> implements PersistentDataType<PersistentDataContainer, T> {
+
+    /**
+     * The default key used to store a schema's version
+     */
+    public static final NamespacedKey DEFAULT_VERSION_KEY = Objects.requireNonNull(PDCUtils.getKeyFromString("jefflib", "schema_version"));
+
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final int version;
+    private final NamespacedKey versionKey;
+    private final Field<T, ?, ?>[] fields;
+    private final Consumer<PersistentDataContainer>[] migrations;
+
+    @SuppressWarnings("unchecked")
+    private PdcSchema(final Builder<T> builder) {
+        this.type = builder.type;
+        this.factory = builder.factory;
+        this.version = builder.version;
+        this.versionKey = builder.versionKey;
+        this.fields = builder.fields.toArray(new Field[0]);
+        this.migrations = builder.migrations.toArray(new Consumer[0]);
+    }
+
+    /**
+     * Creates a new builder for the given type
+     *
+     * @param type    class of the stored objects
+     * @param factory creates an empty object when reading
+     */
+    @NotNull
+    public static <T> Builder<T> builder(@NotNull final Class<T> type, @NotNull final Supplier<T> factory) {
+        return new Builder<>(type, factory);
+    }
+
+    /**
+     * Returns this schema's current version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Reads an object from the given container without changing it. If the data was written by an older version of this
+     * schema, the migrations are applied to a copy of the container. If the container holds neither the version key nor
+     * any of the fields, a new object from the factory is returned and no migrations are run.
+     *
+     * @throws IllegalStateException if the data was written by a newer version of this schema
+     */
+    @NotNull
+    public T read(@NotNull final PersistentDataContainer pdc) {
+        PersistentDataContainer source = pdc;
+        if (hasData(pdc) && getStoredVersion(pdc) != version) {
+            source = pdc.getAdapterContext().newPersistentDataContainer();
+            PDCUtils.copy(pdc, source);
+            applyMigrations(source);
+        }
+        final T object = factory.get();
+        for (final Field<T, ?, ?> field : fields) {
+            field.read(source, object);
+        }
+        return object;
+    }
+
+    /**
+     * Applies the migrations to the given container and stores this schema's version in it, if the container holds
+     * data of an older version. Containers that hold neither the version key nor any of the fields are not changed.
+     *
+     * @return true if the container was migrated, otherwise false
+     * @throws IllegalStateException if the data was written by a newer version of this schema
+     */
+    public boolean migrate(@NotNull final PersistentDataContainer pdc) {
+        if (!hasData(pdc) || getStoredVersion(pdc) == version) return false;
+        applyMigrations(pdc);
+        return true;
+    }
+
+    /**
+     * Writes the given object into the container, together with this schema's version. Fields whose getter returns null are removed.
+     */
+    public void write(@NotNull final PersistentDataContainer pdc, @NotNull final T object) {
+        pdc.set(versionKey, PersistentDataType.INTEGER, version);
+        for (final Field<T, ?, ?> field : fields) {
+            field.write(pdc, object);
+        }
+    }
+
+    private boolean hasData(final PersistentDataContainer pdc) {
+        final Set<NamespacedKey> keys = pdc.getKeys();
+        if (keys.contains(versionKey)) return true;
+        for (final Field<T, ?, ?> field : fields) {
+            if (keys.contains(field.key)) return true;
+        }
+        return false;
+    }
+
+    private int getStoredVersion(final PersistentDataContainer pdc) {
+        final Integer storedVersion = pdc.get(versionKey, PersistentDataType.INTEGER);
+        final int current = storedVersion == null ? 1 : storedVersion;
+        if (current > version) {
+            throw new IllegalStateException("Data was written by schema version " + current + ", but this schema is version " + version);
+        }
+        return current;
+    }
+
+    private void applyMigrations(final PersistentDataContainer pdc) {
+        for (int current = getStoredVersion(pdc); current < version; current++) {
+            final Consumer<PersistentDataContainer> migration = migrations[current];
+            if (migration != null) migration.accept(pdc);
+        }
+        pdc.set(versionKey, PersistentDataType.INTEGER, version);
+    }
+
+    @NotNull
+    @Override
+    public Class<PersistentDataContainer> getPrimitiveType() {
+        return PersistentDataContainer.class;
+    }
+
+    @NotNull
+    @Override
+    public Class<T> getComplexType() {
+        return type;
+    }
+
+    @NotNull
+    @Override
+    public PersistentDataContainer toPrimitive(@NotNull final T complex, @NotNull final PersistentDataAdapterContext context) {
+        final PersistentDataContainer pdc = context.newPersistentDataContainer();
+        write(pdc, complex);
+        return pdc;
+    }
+
+    @NotNull
+    @Override
+    public T fromPrimitive(@NotNull final PersistentDataContainer primitive, @NotNull final PersistentDataAdapterContext context) {
+        return read(primitive);
+    }
+
+    private static final class Field<T, P, Z> {
+        private final NamespacedKey key;
+        private final PersistentDataType<P, Z> type;
+        private final Function<T, Z> getter;
+        private final BiConsumer<T, Z> setter;
+
+        private Field(final NamespacedKey key, final PersistentDataType<P, Z> type, final Function<T, Z> getter, final BiConsumer<T, Z> setter) {
+            this.key = key;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private void read(final PersistentDataContainer pdc, final T object) {
+            final Z value = pdc.get(key, type);
+            if (value != null) setter.accept(object, value);
+        }
+
+        private void write(final PersistentDataContainer pdc, final T object) {
+            final Z value = getter.apply(object);
+            if (value == null) {
+                pdc.remove(key);
+            } else {
+                pdc.set(key, type, value);
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link PdcSchema}s
+     *
+     * @param <T> type of the stored objects
+     */
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final Supplier<T> factory;
+        private final List<Field<T, ?, ?>> fields = new ArrayList<>();
+        private final List<Consumer<PersistentDataContainer>> migrations = new ArrayList<>();
+        private int version = 1;
+        private NamespacedKey versionKey = DEFAULT_VERSION_KEY;
+
+        private Builder(@NotNull final Class<T> type, @NotNull final Supplier<T> factory) {
+            this.type = Objects.requireNonNull(type, "type");
+            this.factory = Objects.requireNonNull(factory, "factory");
+        }
+
+        /**
+         * Sets the current version of this schema. Defaults to 1. Data without a stored version is treated as version 1.
+         */
+        @NotNull
+        public Builder<T> version(final int version) {
+            if (version < 1) throw new IllegalArgumentException("version must be at least 1");
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Sets the key used to store the version, in case several schemas write into the same container. Defaults to {@link #DEFAULT_VERSION_KEY}.
+         */
+        @NotNull
+        public Builder<T> versionKey(@NotNull final NamespacedKey versionKey) {
+            this.versionKey = Objects.requireNonNull(versionKey, "versionKey");
+            return this;
+        }
+
+        /**
+         * Adds a field stored under the given key
+         */
+        @NotNull
+        public <P, Z> Builder<T> field(@NotNull final NamespacedKey key, @NotNull final PersistentDataType<P, Z> type, @NotNull final Function<T, Z> getter, @NotNull final BiConsumer<T, Z> setter) {
+            fields.add(new Field<>(key, type, getter, setter));
+            return this;
+        }
+
+        /**
+         * Adds a field stored under a key of your plugin's namespace, see {@link PDCUtils#getKey(String)}
+         */
+        @NotNull
+        public <P, Z> Builder<T> field(@NotNull final String key, @NotNull final PersistentDataType<P, Z> type, @NotNull final Function<T, Z> getter, @NotNull final BiConsumer<T, Z> setter) {
+            return field(PDCUtils.getKey(key), type, getter, setter);
+        }
+
+        /**
+         * Registers a migration that turns data of the given version into data of the next version. It is run before any
+         * field is read, on a copy of the container when reading, or on the container itself when calling
+         * {@link PdcSchema#migrate(PersistentDataContainer)}.
+         */
+        @NotNull
+        public Builder<T> migrate(final int fromVersion, @NotNull final Consumer<PersistentDataContainer> migration) {
+            if (fromVersion < 1) throw new IllegalArgumentException("fromVersion must be at least 1");
+            while (migrations.size() <= fromVersion) {
+                migrations.add(null);
+            }
+            migrations.set(fromVersion, Objects.requireNonNull(migration, "migration"));
+            return this;
+        }
+
+        /**
+         * Builds the schema
+         *
+         * @throws IllegalStateException if a migration was registered for a version that isn't older than the schema's version
+         */
+        @NotNull
+        public PdcSchema<T> build() {
+            if (migrations.size() > version) {
+                throw new IllegalStateException("Migration from version " + (migrations.size() - 1) + " registered, but the schema's version is " + version);
+            }
+            while (migrations.size() < version) {
+                migrations.add(null);
+            }
+            return new PdcSchema<>(this);
+        }
+    }
+
+}
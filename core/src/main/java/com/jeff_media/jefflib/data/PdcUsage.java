@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.NamespacedKey;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Serialized size of the entries of one or more {@link org.bukkit.persistence.PersistentDataContainer}s, per namespace and per key.
+ * Sizes are the amount of bytes the entries take up in binary NBT, including their names. Nested containers count towards the key they are stored in.
+ *
+ * @see com.jeff_media.jefflib.PDCUtils#getUsage(org.bukkit.persistence.PersistentDataContainer)
+ */
+public final class PdcUsage {
+
+    private final Map<NamespacedKey, Long> keys = new HashMap<>();
+    private final Map<String, Long> namespaces = new HashMap<>();
+    private long totalBytes = 0;
+    private int containers = 0;
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public PdcUsage() {
+    }
+
+    private static <K> Map<K, Long> sortedBySize(final Map<K, Long> map) {
+        final List<Map.Entry<K, Long>> entries = new ArrayList<>(map.entrySet());
+        entries.sort((first, second) -> Long.compare(second.getValue(), first.getValue()));
+        final Map<K, Long> sorted = new LinkedHashMap<>();
+        for (final Map.Entry<K, Long> entry : entries) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return Collections.unmodifiableMap(sorted);
+    }
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public void add(@NotNull final NamespacedKey key, final long bytes) {
+        keys.merge(key, bytes, Long::sum);
+        namespaces.merge(key.getNamespace(), bytes, Long::sum);
+        totalBytes += bytes;
+    }
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public void addContainer() {
+        containers++;
+    }
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public void addAll(@NotNull final PdcUsage other) {
+        for (final Map.Entry<NamespacedKey, Long> entry : other.keys.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+        containers += other.containers;
+    }
+
+    /**
+     * Returns the total size of all entries in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the amount of measured containers that contained at least one entry
+     */
+    public int getContainerCount() {
+        return containers;
+    }
+
+    /**
+     * Returns the size of all entries of the given namespace in bytes
+     */
+    public long getBytes(@NotNull final String namespace) {
+        return namespaces.getOrDefault(namespace, 0L);
+    }
+
+    /**
+     * Returns the size of all entries with the given key in bytes
+     */
+    public long getBytes(@NotNull final NamespacedKey key) {
+        return keys.getOrDefault(key, 0L);
+    }
+
+    /**
+     * Returns the size per namespace in bytes, sorted by size in descending order
+     */
+    @NotNull
+    public Map<String, Long> getBytesPerNamespace() {
+        return sortedBySize(namespaces);
+    }
+
+    /**
+     * Returns the size per key in bytes, sorted by size in descending order
+     */
+    @NotNull
+    public Map<NamespacedKey, Long> getBytesPerKey() {
+        return sortedBySize(keys);
+    }
+
+    @Override
+    public String toString() {
+        return "PdcUsage{" +
+                "totalBytes=" + totalBytes +
+                ", containers=" + containers +
+                ", namespaces=" + getBytesPerNamespace() +
+                "}";
+    }
+}
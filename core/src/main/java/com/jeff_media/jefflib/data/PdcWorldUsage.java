@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.blocktracker.ChunkMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Result of a PDC usage report over the loaded chunks of a world, containing the serialized PDC sizes of chunks,
+ * entities and tile entities
+ *
+ * @see com.jeff_media.jefflib.PDCUtils#getUsageReport(World)
+ */
+public final class PdcWorldUsage {
+
+    private final World world;
+    private final int scannedChunks;
+    private final PdcUsage chunkUsage;
+    private final PdcUsage entityUsage;
+    private final PdcUsage tileEntityUsage;
+    private final Map<Long, Long> bytesPerChunk;
+
+    /**
+     * @internal For internal use only
+     */
+    @Internal
+    public PdcWorldUsage(@NotNull final World world, final int scannedChunks, @NotNull final PdcUsage chunkUsage, @NotNull final PdcUsage entityUsage,
+                         @NotNull final PdcUsage tileEntityUsage, @NotNull final Map<Long, Long> bytesPerChunk) {
+        this.world = world;
+        this.scannedChunks = scannedChunks;
+        this.chunkUsage = chunkUsage;
+        this.entityUsage = entityUsage;
+        this.tileEntityUsage = tileEntityUsage;
+        this.bytesPerChunk = bytesPerChunk;
+    }
+
+    /**
+     * Returns the scanned world
+     */
+    @NotNull
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns the amount of scanned chunks
+     */
+    public int getScannedChunks() {
+        return scannedChunks;
+    }
+
+    /**
+     * Returns the usage of the chunks' own PDCs
+     */
+    @NotNull
+    public PdcUsage getChunkUsage() {
+        return chunkUsage;
+    }
+
+    /**
+     * Returns the usage of all entities' PDCs
+     */
+    @NotNull
+    public PdcUsage getEntityUsage() {
+        return entityUsage;
+    }
+
+    /**
+     * Returns the usage of all tile entities' PDCs
+     */
+    @NotNull
+    public PdcUsage getTileEntityUsage() {
+        return tileEntityUsage;
+    }
+
+    /**
+     * Returns the combined usage of chunks, entities and tile entities
+     */
+    @NotNull
+    public PdcUsage getTotalUsage() {
+        final PdcUsage total = new PdcUsage();
+        total.addAll(chunkUsage);
+        total.addAll(entityUsage);
+        total.addAll(tileEntityUsage);
+        return total;
+    }
+
+    /**
+     * Returns the size of all PDCs stored in the given chunk in bytes
+     */
+    public long getBytes(final int chunkX, final int chunkZ) {
+        return bytesPerChunk.getOrDefault(ChunkMap.getKey(chunkX, chunkZ), 0L);
+    }
+
+    /**
+     * Returns the chunks with the largest PDC usage, sorted by size in descending order. The amount of each chunk is its
+     * size in bytes.
+     *
+     * @param limit maximum amount of chunks to return
+     */
+    @NotNull
+    public List<ChunkAmount> getTopChunks(final int limit) {
+        final List<ChunkAmount> chunks = new ArrayList<>(bytesPerChunk.size());
+        for (final Map.Entry<Long, Long> entry : bytesPerChunk.entrySet()) {
+            final long key = entry.getKey();
+            chunks.add(new ChunkAmount(ChunkMap.getChunkX(key), ChunkMap.getChunkZ(key), entry.getValue()));
+        }
+        chunks.sort((first, second) -> Long.compare(second.getAmount(), first.getAmount()));
+        return Collections.unmodifiableList(chunks.subList(0, Math.min(limit, chunks.size())));
+    }
+
+    @Override
+    public String toString() {
+        return "PdcWorldUsage{" +
+                "world=" + world.getName() +
+                ", scannedChunks=" + scannedChunks +
+                ", chunkBytes=" + chunkUsage.getTotalBytes() +
+                ", entityBytes=" + entityUsage.getTotalBytes() +
+                ", tileEntityBytes=" + tileEntityUsage.getTotalBytes() +
+                "}";
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import org.bukkit.NamespacedKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Thread safe, bounded cache for interning {@link NamespacedKey}s. Lookups are lock-free and don't allocate, because
+ * keys are stored per namespace instead of by their combined "namespace:key" String.
+ * <p>
+ * When the cache is full, an entry is evicted for every new key using a sampled second-chance policy: up to
+ * {@value #EVICTION_SAMPLES} entries are looked at, entries that were used since the last eviction get their flag
+ * cleared, and the first one that wasn't used is removed. Keys of new namespaces aren't cached anymore once
+ * {@value #MAX_NAMESPACES} namespaces are cached.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class NamespacedKeyCache {
+
+    private static final int EVICTION_SAMPLES = 16;
+    private static final int MAX_NAMESPACES = 256;
+
+    private final Map<String, Map<String, Entry>> namespaces = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int maxSize;
+
+    public NamespacedKeyCache(final int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("Max size must not be negative");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached key, or creates, caches and returns a new one using the given factory
+     *
+     * @return the key, or null if the factory returned null
+     */
+    @Nullable
+    public NamespacedKey get(@NotNull final String namespace, @NotNull final String key, @NotNull final BiFunction<String, String, NamespacedKey> factory) {
+        Map<String, Entry> keys = namespaces.get(namespace);
+        if (keys != null) {
+            final Entry cached = keys.get(key);
+            if (cached != null) {
+                // Only write if needed, so hot keys don't keep invalidating the cache line
+                if (!cached.used) cached.used = true;
+                hits.increment();
+                return cached.key;
+            }
+        }
+        misses.increment();
+        final NamespacedKey created = factory.apply(namespace, key);
+        if (created == null || maxSize == 0) return created;
+        if (keys == null) {
+            if (namespaces.size() >= MAX_NAMESPACES && !namespaces.containsKey(namespace)) return created;
+            keys = namespaces.computeIfAbsent(namespace, __ -> new ConcurrentHashMap<>());
+        }
+        final Entry existing = keys.putIfAbsent(key, new Entry(created));
+        if (existing != null) return existing.key;
+        size.incrementAndGet();
+        trim();
+        return created;
+    }
+
+    /**
+     * Removes one entry, preferring entries that weren't used since they were last looked at
+     *
+     * @return false if there was nothing to remove
+     */
+    private boolean evict() {
+        String lastNamespace = null;
+        String lastKey = null;
+        Entry lastEntry = null;
+        int samples = 0;
+        outer:
+        for (final Map.Entry<String, Map<String, Entry>> namespace : namespaces.entrySet()) {
+            final Iterator<Map.Entry<String, Entry>> iterator = namespace.getValue().entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, Entry> candidate = iterator.next();
+                lastNamespace = namespace.getKey();
+                lastKey = candidate.getKey();
+                lastEntry = candidate.getValue();
+                if (!lastEntry.used || ++samples >= EVICTION_SAMPLES) break outer;
+                lastEntry.used = false;
+            }
+        }
+        if (lastEntry == null) return false;
+        if (namespaces.get(lastNamespace).remove(lastKey, lastEntry)) {
+            size.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Returns how often a key was found in the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how often a key had to be created
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the amount of cached keys
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the maximum amount of cached keys
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum amount of cached keys. Evicts entries if there are more.
+     */
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("Max size must not be negative");
+        this.maxSize = maxSize;
+        trim();
+    }
+
+    private void trim() {
+        // Concurrent evictions can pick the same entry, so keep going until the size fits
+        while (size.get() > maxSize) {
+            if (!evict()) break;
+        }
+    }
+
+    /**
+     * Removes all cached keys and resets the statistics. The namespaces stay registered, so that keys added concurrently
+     * are still counted correctly.
+     */
+    public void clear() {
+        for (final Map<String, Entry> keys : namespaces.values()) {
+            for (final Map.Entry<String, Entry> entry : keys.entrySet()) {
+                if (keys.remove(entry.getKey(), entry.getValue())) size.decrementAndGet();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    private static final class Entry {
+        private final NamespacedKey key;
+        private volatile boolean used;
+
+        private Entry(final NamespacedKey key) {
+            this.key = key;
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.data.BlockTrackerAudit;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.nbt.McaRegionFile;
+import com.jeff_media.jefflib.internal.nbt.NbtReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Counts the tracked blocks of many chunks without loading them. Loaded chunks are counted on the main thread, all
+ * other chunks are read asynchronously from the storage's region files, or from the world's .mca region files for
+ * storages that keep their data inside the chunks.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class BlockTrackerAuditor {
+
+    private final Plugin plugin;
+    private final World world;
+    private final BlockTrackerStorage storage;
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int maxChunkX;
+    private final int maxChunkZ;
+    private final BiConsumer<Integer, Integer> progress;
+    private final Map<Long, Integer> counts = new HashMap<>();
+    private int scannedChunks = 0;
+    private int failedChunks = 0;
+
+    public BlockTrackerAuditor(@NotNull final Plugin plugin, @NotNull final World world, @NotNull final BlockTrackerStorage storage,
+                               final int minChunkX, final int minChunkZ, final int maxChunkX, final int maxChunkZ,
+                               @Nullable final BiConsumer<Integer, Integer> progress) {
+        this.plugin = plugin;
+        this.world = world;
+        this.storage = storage;
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.maxChunkX = maxChunkX;
+        this.maxChunkZ = maxChunkZ;
+        this.progress = progress;
+    }
+
+    /**
+     * Returns the directory containing the .mca region files of the given world
+     */
+    @NotNull
+    public static File getMcaRegionDirectory(@NotNull final World world) {
+        switch (world.getEnvironment()) {
+            case NETHER:
+                return new File(world.getWorldFolder(), "DIM-1" + File.separator + "region");
+            case THE_END:
+                return new File(world.getWorldFolder(), "DIM1" + File.separator + "region");
+            default:
+                return new File(world.getWorldFolder(), "region");
+        }
+    }
+
+    /**
+     * Starts the audit. Loaded chunks are read on the main thread using the given reader, everything else happens
+     * asynchronously.
+     */
+    @NotNull
+    public CompletableFuture<BlockTrackerAudit> run(@NotNull final Function<Chunk, ChunkTrackingData> loadedReader) {
+        final CompletableFuture<ChunkMap<Integer>> snapshot = new CompletableFuture<>();
+        final Runnable snapshotTask = () -> {
+            try {
+                snapshot.complete(countLoadedChunks(loadedReader));
+            } catch (final Throwable t) {
+                snapshot.completeExceptionally(t);
+            }
+        };
+        if (Bukkit.isPrimaryThread()) {
+            snapshotTask.run();
+        } else {
+            Bukkit.getScheduler().runTask(plugin, snapshotTask);
+        }
+        return snapshot.thenApplyAsync(loaded -> {
+            scanRegionFiles(loaded);
+            for (final long key : loaded.keys()) {
+                scannedChunks++;
+                final Integer count = loaded.get(key);
+                if (count != null && count > 0) counts.put(key, count);
+            }
+            return new BlockTrackerAudit(world, counts, scannedChunks, failedChunks);
+        });
+    }
+
+    private boolean isInRange(final int chunkX, final int chunkZ) {
+        return chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ;
+    }
+
+    private ChunkMap<Integer> countLoadedChunks(final Function<Chunk, ChunkTrackingData> loadedReader) {
+        final ChunkMap<Integer> loaded = new ChunkMap<>();
+        for (final Chunk chunk : world.getLoadedChunks()) {
+            if (!isInRange(chunk.getX(), chunk.getZ())) continue;
+            loaded.put(ChunkMap.getKey(chunk.getX(), chunk.getZ()), loadedReader.apply(chunk).count());
+        }
+        return loaded;
+    }
+
+    private void scanRegionFiles(final ChunkMap<Integer> loaded) {
+        final boolean ownFiles = storage instanceof RegionFileStorage;
+        final File directory = ownFiles ? ((RegionFileStorage) storage).getWorldDirectory(world) : getMcaRegionDirectory(world);
+        final String extension = ownFiles ? ".jbt" : ".mca";
+        final List<int[]> regions = new ArrayList<>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                final int[] region = parseRegionFileName(file.getName(), extension);
+                if (region == null) continue;
+                final int regionMinX = region[0] * McaRegionFile.REGION_SIZE;
+                final int regionMinZ = region[1] * McaRegionFile.REGION_SIZE;
+                if (regionMinX > maxChunkX || regionMinX + McaRegionFile.REGION_SIZE - 1 < minChunkX
+                        || regionMinZ > maxChunkZ || regionMinZ + McaRegionFile.REGION_SIZE - 1 < minChunkZ) continue;
+                regions.add(region);
+            }
+        }
+        for (int i = 0; i < regions.size(); i++) {
+            final int[] region = regions.get(i);
+            if (ownFiles) {
+                scanTrackerRegion((RegionFileStorage) storage, region[0], region[1], loaded);
+            } else {
+                scanMcaRegion(new File(directory, "r." + region[0] + "." + region[1] + extension), region[0], region[1], loaded);
+            }
+            if (progress != null) {
+                progress.accept(i + 1, regions.size());
+            }
+        }
+    }
+
+    @Nullable
+    private static int[] parseRegionFileName(final String name, final String extension) {
+        if (!name.startsWith("r.") || !name.endsWith(extension)) return null;
+        final String[] parts = name.substring(2, name.length() - extension.length()).split("\\.");
+        if (parts.length != 2) return null;
+        try {
+            return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        } catch (final NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private void scanTrackerRegion(final RegionFileStorage storage, final int regionX, final int regionZ, final ChunkMap<Integer> loaded) {
+        for (int index = 0; index < TrackerRegionFile.REGION_SIZE * TrackerRegionFile.REGION_SIZE; index++) {
+            final int chunkX = regionX * TrackerRegionFile.REGION_SIZE + (index & (TrackerRegionFile.REGION_SIZE - 1));
+            final int chunkZ = regionZ * TrackerRegionFile.REGION_SIZE + index / TrackerRegionFile.REGION_SIZE;
+            if (!isInRange(chunkX, chunkZ) || loaded.get(ChunkMap.getKey(chunkX, chunkZ)) != null) continue;
+            try {
+                final byte[] bytes = storage.readStored(world, chunkX, chunkZ);
+                if (bytes == null) continue;
+                final ChunkTrackingData data = new ChunkTrackingData();
+                TrackingDataCodec.decode(bytes, data);
+                addCount(chunkX, chunkZ, data.count());
+            } catch (final IOException | IllegalArgumentException ex) {
+                fail(chunkX, chunkZ, ex);
+            }
+        }
+    }
+
+    private void scanMcaRegion(final File file, final int regionX, final int regionZ, final ChunkMap<Integer> loaded) {
+        final String bitsetKey = PdcBitsetStorage.getBitsetTag().toString();
+        final String legacyKey = PdcKeyStorage.getPlayerPlacedTag().toString();
+        try (final McaRegionFile region = new McaRegionFile(file)) {
+            for (int index = 0; index < McaRegionFile.REGION_SIZE * McaRegionFile.REGION_SIZE; index++) {
+                if (!region.contains(index)) continue;
+                final int chunkX = regionX * McaRegionFile.REGION_SIZE + (index & (McaRegionFile.REGION_SIZE - 1));
+                final int chunkZ = regionZ * McaRegionFile.REGION_SIZE + index / McaRegionFile.REGION_SIZE;
+                if (!isInRange(chunkX, chunkZ) || loaded.get(ChunkMap.getKey(chunkX, chunkZ)) != null) continue;
+                try (final DataInputStream in = region.openChunk(index)) {
+                    if (in == null) continue;
+                    final ChunkTrackingData data = new ChunkTrackingData();
+                    readChunkNbt(new NbtReader(in), bitsetKey, legacyKey, data);
+                    addCount(chunkX, chunkZ, data.count());
+                } catch (final IOException | IllegalArgumentException ex) {
+                    fail(chunkX, chunkZ, ex);
+                }
+            }
+        } catch (final IOException ex) {
+            plugin.getLogger().log(Level.WARNING, "Could not read region file " + file, ex);
+        }
+    }
+
+    private void addCount(final int chunkX, final int chunkZ, final int count) {
+        scannedChunks++;
+        if (count > 0) counts.put(ChunkMap.getKey(chunkX, chunkZ), count);
+    }
+
+    private void fail(final int chunkX, final int chunkZ, final Exception ex) {
+        failedChunks++;
+        plugin.getLogger().warning("Could not audit block tracker data of chunk " + chunkX + ", " + chunkZ + " in world " + world.getName() + ": " + ex.getMessage());
+    }
+
+    /**
+     * Reads the tracked blocks from a chunk's NBT data, supporting both the {@link PdcBitsetStorage} and the
+     * {@link PdcKeyStorage} format
+     */
+    static void readChunkNbt(final NbtReader reader, final String bitsetKey, final String legacyKey, final ChunkTrackingData data) throws IOException {
+        if (reader.readRoot() != NbtReader.TAG_COMPOUND) return;
+        if (!findBukkitValues(reader)) return;
+        int type;
+        while ((type = reader.nextEntry()) != NbtReader.TAG_END) {
+            final String name = reader.getName();
+            if (type == NbtReader.TAG_BYTE_ARRAY && name.equals(bitsetKey)) {
+                TrackingDataCodec.decode(reader.readByteArray(), data);
+            } else if (type == NbtReader.TAG_COMPOUND && name.equals(legacyKey)) {
+                readLegacyKeys(reader, data);
+            } else {
+                reader.skip(type);
+            }
+        }
+    }
+
+    /**
+     * Advances the reader to the payload of the chunk's PDC, which is stored inside the "Level" compound before 1.18
+     */
+    private static boolean findBukkitValues(final NbtReader reader) throws IOException {
+        int type;
+        while ((type = reader.nextEntry()) != NbtReader.TAG_END) {
+            if (type == NbtReader.TAG_COMPOUND && reader.getName().equals("ChunkBukkitValues")) return true;
+            if (type == NbtReader.TAG_COMPOUND && reader.getName().equals("Level")) {
+                if (findBukkitValues(reader)) return true;
+            } else {
+                reader.skip(type);
+            }
+        }
+        return false;
+    }
+
+    private static void readLegacyKeys(final NbtReader reader, final ChunkTrackingData data) throws IOException {
+        int type;
+        while ((type = reader.nextEntry()) != NbtReader.TAG_END) {
+            reader.skip(type);
+            final String name = reader.getName();
+            final String[] parts = name.substring(name.indexOf(':') + 1).split("/");
+            if (parts.length != 3) continue;
+            try {
+                data.set(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), true);
+            } catch (final NumberFormatException ignored) {
+                // Not one of our keys
+            }
+        }
+    }
+
+}
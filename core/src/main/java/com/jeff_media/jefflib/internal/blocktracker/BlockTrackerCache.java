@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.HashMap;
+import java.util.Map;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps the {@link ChunkTrackingData} of loaded chunks in memory. Changes only mark the data as dirty; it's written
+ * back to the underlying {@link BlockTrackerStorage} when the chunk unloads or the world saves.
+ * <p>
+ * Must only be accessed from the main thread.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class BlockTrackerCache {
+
+    private final BlockTrackerStorage storage;
+    private final Map<World, ChunkMap<ChunkTrackingData>> worlds = new HashMap<>();
+
+    public BlockTrackerCache(@NotNull final BlockTrackerStorage storage) {
+        this.storage = storage;
+    }
+
+    private ChunkMap<ChunkTrackingData> getWorldMap(final World world) {
+        ChunkMap<ChunkTrackingData> map = worlds.get(world);
+        if (map == null) {
+            map = new ChunkMap<>();
+            worlds.put(world, map);
+        }
+        return map;
+    }
+
+    /**
+     * Gets the cached data of a chunk, loading it from the storage if it isn't cached yet
+     */
+    @NotNull
+    public ChunkTrackingData get(@NotNull final Chunk chunk) {
+        return get(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Gets the cached data of a chunk, loading it from the storage if it isn't cached yet
+     */
+    @NotNull
+    public ChunkTrackingData get(@NotNull final World world, final int chunkX, final int chunkZ) {
+        final ChunkMap<ChunkTrackingData> map = getWorldMap(world);
+        final long key = ChunkMap.getKey(chunkX, chunkZ);
+        ChunkTrackingData data = map.get(key);
+        if (data == null) {
+            data = storage.read(world.getChunkAt(chunkX, chunkZ));
+            map.put(key, data);
+        }
+        return data;
+    }
+
+    /**
+     * Gets the cached data of a chunk without loading it
+     */
+    @Nullable
+    public ChunkTrackingData getIfCached(@NotNull final World world, final int chunkX, final int chunkZ) {
+        final ChunkMap<ChunkTrackingData> map = worlds.get(world);
+        return map == null ? null : map.get(ChunkMap.getKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Loads the data of a chunk into the cache
+     */
+    public void load(@NotNull final Chunk chunk) {
+        get(chunk);
+    }
+
+    /**
+     * Writes the data of a chunk back if it's dirty and removes it from the cache
+     */
+    public void unload(@NotNull final Chunk chunk) {
+        final ChunkMap<ChunkTrackingData> map = worlds.get(chunk.getWorld());
+        if (map == null) return;
+        final ChunkTrackingData data = map.remove(ChunkMap.getKey(chunk.getX(), chunk.getZ()));
+        if (data != null && data.isDirty()) {
+            storage.write(chunk, data);
+            data.setDirty(false);
+        }
+    }
+
+    /**
+     * Writes back all dirty data of the given world
+     */
+    public void save(@NotNull final World world) {
+        final ChunkMap<ChunkTrackingData> map = worlds.get(world);
+        if (map == null) return;
+        for (final long key : map.keys()) {
+            final ChunkTrackingData data = map.get(key);
+            if (data == null || !data.isDirty()) continue;
+            storage.write(world.getChunkAt(ChunkMap.getChunkX(key), ChunkMap.getChunkZ(key)), data);
+            data.setDirty(false);
+        }
+    }
+
+    /**
+     * Writes back all dirty data of the given world and removes the world from the cache
+     */
+    public void unload(@NotNull final World world) {
+        save(world);
+        worlds.remove(world);
+    }
+
+    /**
+     * Writes back all dirty data
+     */
+    public void saveAll() {
+        for (final World world : worlds.keySet()) {
+            save(world);
+        }
+    }
+
+    /**
+     * Returns the underlying storage
+     */
+    @NotNull
+    public BlockTrackerStorage getStorage() {
+        return storage;
+    }
+
+}
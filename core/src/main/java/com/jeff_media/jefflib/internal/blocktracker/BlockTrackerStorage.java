@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import org.bukkit.Chunk;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Persists the {@link ChunkTrackingData} of chunks
+ *
+ * @internal For internal use only
+ */
+@Internal
+public interface BlockTrackerStorage {
+
+    /**
+     * Reads the tracking data of a chunk. Never returns null - chunks without data return an empty instance. The returned
+     * data is not marked as dirty.
+     */
+    @NotNull
+    ChunkTrackingData read(@NotNull Chunk chunk);
+
+    /**
+     * Replaces the stored tracking data of a chunk
+     */
+    void write(@NotNull Chunk chunk, @NotNull ChunkTrackingData data);
+
+    /**
+     * Checks whether a single position is tracked. X and Z are chunk-relative, Y is absolute.
+     */
+    default boolean isTracked(@NotNull final Chunk chunk, final int x, final int y, final int z) {
+        return read(chunk).get(x, y, z);
+    }
+
+    /**
+     * Sets whether a single position is tracked. X and Z are chunk-relative, Y is absolute.
+     */
+    default void setTracked(@NotNull final Chunk chunk, final int x, final int y, final int z, final boolean tracked) {
+        final ChunkTrackingData data = read(chunk);
+        if (data.set(x, y, z, tracked)) {
+            write(chunk, data);
+        }
+    }
+
+    /**
+     * Starts writing changes that are buffered by the storage itself, if any. Must not block.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Writes all buffered changes and releases all resources. Called on plugin disable or when the storage type is changed.
+     */
+    default void close() {
+    }
+
+}
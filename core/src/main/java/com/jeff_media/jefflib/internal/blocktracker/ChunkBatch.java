@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects changes to many blocks, reading each affected chunk's data only once and committing each changed chunk
+ * only once.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class ChunkBatch {
+
+    private final Function<Chunk, ChunkTrackingData> reader;
+    private final Map<World, ChunkMap<ChunkTrackingData>> chunks = new HashMap<>();
+
+    /**
+     * @param reader function used to get a chunk's data the first time it's accessed in this batch
+     */
+    public ChunkBatch(@NotNull final Function<Chunk, ChunkTrackingData> reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Gets the data of the given chunk
+     */
+    @NotNull
+    public ChunkTrackingData get(@NotNull final World world, final int chunkX, final int chunkZ) {
+        ChunkMap<ChunkTrackingData> map = chunks.get(world);
+        if (map == null) {
+            map = new ChunkMap<>();
+            chunks.put(world, map);
+        }
+        final long key = ChunkMap.getKey(chunkX, chunkZ);
+        ChunkTrackingData data = map.get(key);
+        if (data == null) {
+            data = reader.apply(world.getChunkAt(chunkX, chunkZ));
+            map.put(key, data);
+        }
+        return data;
+    }
+
+    /**
+     * Sets whether the given block position is tracked
+     *
+     * @return true if this changed the stored value
+     */
+    public boolean set(@NotNull final World world, final int x, final int y, final int z, final boolean tracked) {
+        return get(world, x >> 4, z >> 4).set(x & 0x0F, y, z & 0x0F, tracked);
+    }
+
+    /**
+     * Checks whether the given block position is tracked
+     */
+    public boolean get(@NotNull final World world, final int x, final int y, final int z) {
+        return get(world, x >> 4, z >> 4).get(x & 0x0F, y, z & 0x0F);
+    }
+
+    /**
+     * Passes every chunk whose data was changed to the given writer
+     */
+    public void commit(@NotNull final BiConsumer<Chunk, ChunkTrackingData> writer) {
+        for (final Map.Entry<World, ChunkMap<ChunkTrackingData>> entry : chunks.entrySet()) {
+            final World world = entry.getKey();
+            final ChunkMap<ChunkTrackingData> map = entry.getValue();
+            for (final long key : map.keys()) {
+                final ChunkTrackingData data = map.get(key);
+                if (data == null || !data.isDirty()) continue;
+                writer.accept(world.getChunkAt(ChunkMap.getChunkX(key), ChunkMap.getChunkZ(key)), data);
+            }
+        }
+        chunks.clear();
+    }
+
+}
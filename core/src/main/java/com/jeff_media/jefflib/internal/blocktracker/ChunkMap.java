@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Minimal open-addressing hash map using packed chunk coordinates as primitive long keys, so that lookups don't box
+ * or allocate. Not thread safe.
+ *
+ * @param <V> value type
+ * @internal For internal use only
+ */
+@Internal
+public final class ChunkMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    public ChunkMap() {
+        keys = new long[16];
+        values = new Object[16];
+    }
+
+    /**
+     * Packs chunk coordinates into a single long
+     */
+    public static long getKey(final int chunkX, final int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the chunk X coordinate of a packed key
+     */
+    public static int getChunkX(final long key) {
+        return (int) key;
+    }
+
+    /**
+     * Gets the chunk Z coordinate of a packed key
+     */
+    public static int getChunkZ(final long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int mix(final long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private int indexOf(final long key) {
+        final int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != null) {
+            if (keys[index] == key) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value for the given key, or null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Associates the value with the given key
+     *
+     * @return the previous value, or null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V put(final long key, @NotNull final V value) {
+        final int existing = indexOf(key);
+        if (existing >= 0) {
+            final V old = (V) values[existing];
+            values[existing] = value;
+            return old;
+        }
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            resize(keys.length * 2);
+        }
+        insert(key, value);
+        size++;
+        return null;
+    }
+
+    private void insert(final long key, final Object value) {
+        final int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != null) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    private void resize(final int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes the value for the given key
+     *
+     * @return the removed value, or null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        int index = indexOf(key);
+        if (index < 0) return null;
+        final V old = (V) values[index];
+        final int mask = keys.length - 1;
+        values[index] = null;
+        size--;
+        // Re-insert the following entries of the same cluster so lookups don't stop at the gap
+        index = (index + 1) & mask;
+        while (values[index] != null) {
+            final long movedKey = keys[index];
+            final Object movedValue = values[index];
+            values[index] = null;
+            insert(movedKey, movedValue);
+            index = (index + 1) & mask;
+        }
+        return old;
+    }
+
+    /**
+     * Returns the amount of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns a snapshot of all keys
+     */
+    @NotNull
+    public long[] keys() {
+        final long[] result = new long[size];
+        int i = 0;
+        for (int index = 0; index < keys.length; index++) {
+            if (values[index] != null) result[i++] = keys[index];
+        }
+        return result;
+    }
+
+    /**
+     * Calls the consumer for every value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(@NotNull final Consumer<V> consumer) {
+        for (final Object value : values) {
+            if (value != null) consumer.accept((V) value);
+        }
+    }
+
+}
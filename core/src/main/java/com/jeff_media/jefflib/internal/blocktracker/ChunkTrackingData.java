@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.data.IntTriConsumer;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the tracked positions of one chunk as one 4096 bit bitset per 16x16x16 chunk section.
+ * <p>
+ * X and Z coordinates are chunk-relative (0-15), Y coordinates are absolute world coordinates.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class ChunkTrackingData {
+
+    /**
+     * Amount of longs needed to store one section (16 * 16 * 16 bits)
+     */
+    public static final int SECTION_LONGS = 64;
+
+    private static final long[][] NO_SECTIONS = new long[0][];
+
+    private long[][] sections = NO_SECTIONS;
+    private int minSection = 0;
+    private boolean dirty = false;
+    private PlacerData placers = null;
+
+    private static int getIndex(final int x, final int y, final int z) {
+        return ((y & 0x0F) << 8) | ((z & 0x0F) << 4) | (x & 0x0F);
+    }
+
+    /**
+     * Gets the key used by {@link PlacerData} for the given position, consisting of the section Y coordinate and the
+     * index inside the section
+     */
+    public static int getPositionKey(final int x, final int y, final int z) {
+        return ((y >> 4) << 12) | getIndex(x, y, z);
+    }
+
+    /**
+     * Packs absolute block coordinates into a single long, using 26 bits for X and Z and 12 bits for Y
+     */
+    public static long pack(final int x, final int y, final int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Gets the X coordinate of a position packed using {@link #pack(int, int, int)}
+     */
+    public static int unpackX(final long packed) {
+        return (int) (packed >> 38);
+    }
+
+    /**
+     * Gets the Y coordinate of a position packed using {@link #pack(int, int, int)}
+     */
+    public static int unpackY(final long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    /**
+     * Gets the Z coordinate of a position packed using {@link #pack(int, int, int)}
+     */
+    public static int unpackZ(final long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Checks whether the given position is tracked
+     */
+    public boolean get(final int x, final int y, final int z) {
+        final long[] section = getSection(y >> 4);
+        if (section == null) return false;
+        final int index = getIndex(x, y, z);
+        return (section[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets whether the given position is tracked
+     *
+     * @return true if this changed the stored value, otherwise false
+     */
+    public boolean set(final int x, final int y, final int z, final boolean value) {
+        final int sectionY = y >> 4;
+        long[] section = getSection(sectionY);
+        if (section == null) {
+            if (!value) return false;
+            section = new long[SECTION_LONGS];
+            setSection(sectionY, section);
+        }
+        final int index = getIndex(x, y, z);
+        final long mask = 1L << index;
+        final long old = section[index >>> 6];
+        final long updated = value ? (old | mask) : (old & ~mask);
+        if (old == updated) return false;
+        section[index >>> 6] = updated;
+        if (!value && placers != null) {
+            placers.remove(((y >> 4) << 12) | index);
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Gets the player who placed the block at the given position, or null if unknown
+     */
+    @Nullable
+    public UUID getPlacer(final int x, final int y, final int z) {
+        return placers == null ? null : placers.getPlacer(getPositionKey(x, y, z));
+    }
+
+    /**
+     * Gets the time in milliseconds since epoch when the block at the given position was placed, or
+     * {@link PlacerData#UNKNOWN}
+     */
+    public long getPlacedAt(final int x, final int y, final int z) {
+        return placers == null ? PlacerData.UNKNOWN : placers.getPlacedAt(getPositionKey(x, y, z));
+    }
+
+    /**
+     * Stores who placed the block at the given position and when. Passing null removes the stored data.
+     */
+    public void setPlacer(final int x, final int y, final int z, @Nullable final UUID placer, final long timestamp) {
+        if (placer == null) {
+            if (placers == null) return;
+            placers.remove(getPositionKey(x, y, z));
+        } else {
+            getOrCreatePlacers().set(getPositionKey(x, y, z), placer, timestamp);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Returns the stored placer data, or null if no placer was ever stored
+     */
+    @Nullable
+    public PlacerData getPlacers() {
+        return placers;
+    }
+
+    /**
+     * Returns the stored placer data, creating it if necessary
+     */
+    @NotNull
+    public PlacerData getOrCreatePlacers() {
+        if (placers == null) {
+            placers = new PlacerData();
+        }
+        return placers;
+    }
+
+    /**
+     * Untracks all positions inside the given box. X and Z are chunk-relative, Y is absolute, all bounds are inclusive.
+     *
+     * @return amount of positions that were tracked before
+     */
+    public int clear(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+        int removed = 0;
+        for (int y = Math.max(minY, minSection << 4); y <= maxY && y < (getMaxSection() << 4); y++) {
+            final long[] section = getSection(y >> 4);
+            if (section == null) {
+                // Skip to the first block of the next section
+                y |= 0x0F;
+                continue;
+            }
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    final int index = getIndex(x, y, z);
+                    final long mask = 1L << index;
+                    if ((section[index >>> 6] & mask) != 0) {
+                        section[index >>> 6] &= ~mask;
+                        if (placers != null) placers.remove(((y >> 4) << 12) | index);
+                        removed++;
+                    }
+                }
+            }
+        }
+        if (removed > 0) dirty = true;
+        return removed;
+    }
+
+    /**
+     * Returns the bitset of the given section, or null if nothing is tracked in it
+     */
+    @Nullable
+    public long[] getSection(final int sectionY) {
+        final int index = sectionY - minSection;
+        if (index < 0 || index >= sections.length) return null;
+        return sections[index];
+    }
+
+    /**
+     * Replaces the bitset of the given section. The array must have a length of {@link #SECTION_LONGS}.
+     */
+    public void setSection(final int sectionY, @Nullable final long[] bits) {
+        if (bits != null && bits.length != SECTION_LONGS) {
+            throw new IllegalArgumentException("Section bitset must contain " + SECTION_LONGS + " longs");
+        }
+        if (sections.length == 0) {
+            if (bits == null) return;
+            minSection = sectionY;
+            sections = new long[1][];
+        } else if (sectionY < minSection) {
+            if (bits == null) return;
+            final long[][] grown = new long[sections.length + (minSection - sectionY)][];
+            System.arraycopy(sections, 0, grown, minSection - sectionY, sections.length);
+            sections = grown;
+            minSection = sectionY;
+        } else if (sectionY - minSection >= sections.length) {
+            if (bits == null) return;
+            sections = Arrays.copyOf(sections, sectionY - minSection + 1);
+        }
+        sections[sectionY - minSection] = bits;
+        dirty = true;
+    }
+
+    /**
+     * Returns the lowest section Y coordinate that might contain data
+     */
+    public int getMinSection() {
+        return minSection;
+    }
+
+    /**
+     * Returns the highest section Y coordinate (exclusive) that might contain data
+     */
+    public int getMaxSection() {
+        return minSection + sections.length;
+    }
+
+    /**
+     * Returns the amount of tracked positions
+     */
+    public int count() {
+        int count = 0;
+        for (final long[] section : sections) {
+            if (section == null) continue;
+            for (final long word : section) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Calls the consumer for every tracked position, passing the X and Z coordinates offset by the given base
+     * coordinates and the absolute Y coordinate
+     */
+    public void forEach(final int baseX, final int baseZ, @NotNull final IntTriConsumer consumer) {
+        for (int i = 0; i < sections.length; i++) {
+            final long[] section = sections[i];
+            if (section == null) continue;
+            final int baseY = (minSection + i) << 4;
+            for (int wordIndex = 0; wordIndex < section.length; wordIndex++) {
+                long word = section[wordIndex];
+                while (word != 0) {
+                    final int index = (wordIndex << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    consumer.accept(baseX + (index & 0x0F), baseY + (index >>> 8), baseZ + ((index >>> 4) & 0x0F));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over all tracked positions, packed using {@link #pack(int, int, int)}. The X and Z coordinates
+     * are offset by the given base coordinates. The iterator doesn't support concurrent modification.
+     */
+    @NotNull
+    public PrimitiveIterator.OfLong iterator(final int baseX, final int baseZ) {
+        return new PositionIterator(baseX, baseZ);
+    }
+
+    /**
+     * Checks whether no position is tracked
+     */
+    public boolean isEmpty() {
+        for (final long[] section : sections) {
+            if (section == null) continue;
+            for (final long word : section) {
+                if (word != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all tracked positions
+     */
+    public void clear() {
+        sections = NO_SECTIONS;
+        minSection = 0;
+        placers = null;
+        dirty = true;
+    }
+
+    /**
+     * Checks whether this data was changed since it was last marked as clean
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Sets whether this data has changes that haven't been persisted yet
+     */
+    public void setDirty(final boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    private final class PositionIterator implements PrimitiveIterator.OfLong {
+
+        private final int baseX;
+        private final int baseZ;
+        private int sectionIndex = 0;
+        private int wordIndex = -1;
+        private long word = 0;
+
+        private PositionIterator(final int baseX, final int baseZ) {
+            this.baseX = baseX;
+            this.baseZ = baseZ;
+            advance();
+        }
+
+        private void advance() {
+            while (word == 0) {
+                wordIndex++;
+                if (wordIndex >= SECTION_LONGS) {
+                    wordIndex = 0;
+                    sectionIndex++;
+                }
+                if (sectionIndex >= sections.length) return;
+                final long[] section = sections[sectionIndex];
+                if (section == null) {
+                    wordIndex = SECTION_LONGS - 1;
+                    continue;
+                }
+                word = section[wordIndex];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return word != 0;
+        }
+
+        @Override
+        public long nextLong() {
+            if (word == 0) throw new NoSuchElementException();
+            final int index = (wordIndex << 6) | Long.numberOfTrailingZeros(word);
+            final int y = ((minSection + sectionIndex) << 4) + (index >>> 8);
+            final long packed = pack(baseX + (index & 0x0F), y, baseZ + ((index >>> 4) & 0x0F));
+            word &= word - 1;
+            advance();
+            return packed;
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable set of materials stored as a bitset indexed by the materials' ordinals. Every modification returns a new
+ * instance, so instances can be shared between threads without synchronization.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class MaterialFilter {
+
+    /**
+     * Filter containing no materials
+     */
+    public static final MaterialFilter NONE = new MaterialFilter(new long[0], false);
+
+    /**
+     * Filter containing every material
+     */
+    public static final MaterialFilter ALL = new MaterialFilter(new long[0], true);
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final long[] bits;
+    private final boolean all;
+
+    private MaterialFilter(final long[] bits, final boolean all) {
+        this.bits = bits;
+        this.all = all;
+    }
+
+    /**
+     * Checks whether the given material is contained in this filter
+     */
+    public boolean contains(@NotNull final Material material) {
+        if (all) return true;
+        final int ordinal = material.ordinal();
+        final int word = ordinal >>> 6;
+        return word < bits.length && (bits[word] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Returns a copy of this filter that additionally contains the given materials
+     */
+    @NotNull
+    public MaterialFilter with(@NotNull final Collection<Material> materials) {
+        if (all || materials.isEmpty()) return this;
+        final long[] copy = Arrays.copyOf(bits, (MATERIALS.length + 63) >>> 6);
+        for (final Material material : materials) {
+            copy[material.ordinal() >>> 6] |= 1L << material.ordinal();
+        }
+        return of(copy);
+    }
+
+    /**
+     * Returns a copy of this filter that doesn't contain the given materials
+     */
+    @NotNull
+    public MaterialFilter without(@NotNull final Collection<Material> materials) {
+        if (materials.isEmpty() || this == NONE) return this;
+        final long[] copy;
+        if (all) {
+            copy = new long[(MATERIALS.length + 63) >>> 6];
+            Arrays.fill(copy, -1L);
+            // Clear the bits after the last material
+            if ((MATERIALS.length & 63) != 0) {
+                copy[copy.length - 1] = (1L << MATERIALS.length) - 1;
+            }
+        } else {
+            copy = Arrays.copyOf(bits, bits.length);
+        }
+        for (final Material material : materials) {
+            final int word = material.ordinal() >>> 6;
+            if (word < copy.length) copy[word] &= ~(1L << material.ordinal());
+        }
+        return of(copy);
+    }
+
+    private static MaterialFilter of(final long[] bits) {
+        int count = 0;
+        for (final long word : bits) {
+            count += Long.bitCount(word);
+        }
+        if (count == 0) return NONE;
+        if (count == MATERIALS.length) return ALL;
+        return new MaterialFilter(bits, false);
+    }
+
+    /**
+     * Returns an unmodifiable set containing all materials of this filter
+     */
+    @NotNull
+    public Set<Material> toSet() {
+        if (all) return Collections.unmodifiableSet(EnumSet.allOf(Material.class));
+        final Set<Material> set = EnumSet.noneOf(Material.class);
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                set.add(MATERIALS[(word << 6) | Long.numberOfTrailingZeros(remaining)]);
+                remaining &= remaining - 1;
+            }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores all tracked blocks of a chunk as one byte array in the chunk's PDC, containing one bitset per chunk section.
+ * <p>
+ * Chunks that still contain data in the {@link PdcKeyStorage} format are migrated automatically when they're read.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class PdcBitsetStorage implements BlockTrackerStorage {
+
+    private final NamespacedKey bitsetTag = getBitsetTag();
+    private final NamespacedKey legacyTag = PdcKeyStorage.getPlayerPlacedTag();
+
+    /**
+     * Returns the key of the byte array holding the tracked blocks
+     */
+    @NotNull
+    public static NamespacedKey getBitsetTag() {
+        return new NamespacedKey(JeffLib.getPlugin(), "playerplaced_bits");
+    }
+
+    @NotNull
+    @Override
+    public ChunkTrackingData read(@NotNull final Chunk chunk) {
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        final ChunkTrackingData data = new ChunkTrackingData();
+        final byte[] bytes = pdc.get(bitsetTag, PersistentDataType.BYTE_ARRAY);
+        if (bytes != null) {
+            try {
+                TrackingDataCodec.decode(bytes, data);
+            } catch (final IllegalArgumentException ex) {
+                JeffLib.getPlugin().getLogger().warning("Discarding invalid block tracker data in chunk " + chunk.getX() + ", " + chunk.getZ() + " of world " + chunk.getWorld().getName() + ": " + ex.getMessage());
+                data.clear();
+            }
+        }
+        final PersistentDataContainer legacyPDC = pdc.get(legacyTag, PersistentDataType.TAG_CONTAINER);
+        if (legacyPDC != null) {
+            PdcKeyStorage.readInto(legacyPDC, data);
+            pdc.remove(legacyTag);
+            write(chunk, data);
+        }
+        data.setDirty(false);
+        return data;
+    }
+
+    @Override
+    public void write(@NotNull final Chunk chunk, @NotNull final ChunkTrackingData data) {
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        if (data.isEmpty()) {
+            pdc.remove(bitsetTag);
+        } else {
+            pdc.set(bitsetTag, PersistentDataType.BYTE_ARRAY, TrackingDataCodec.encode(data));
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The original storage format: one {@link NamespacedKey} named "x/y/z" per tracked block inside a nested
+ * {@link PersistentDataContainer} in the chunk's PDC.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class PdcKeyStorage implements BlockTrackerStorage {
+
+    private final NamespacedKey playerPlacedTag;
+
+    public PdcKeyStorage() {
+        this.playerPlacedTag = getPlayerPlacedTag();
+    }
+
+    /**
+     * Returns the key of the nested container holding the tracked blocks
+     */
+    @NotNull
+    public static NamespacedKey getPlayerPlacedTag() {
+        return new NamespacedKey(JeffLib.getPlugin(), "playerplaced");
+    }
+
+    /**
+     * Adds all positions stored in the given nested container to the given data
+     */
+    public static void readInto(@NotNull final PersistentDataContainer playerPlacedPDC, @NotNull final ChunkTrackingData data) {
+        final String namespace = getPlayerPlacedTag().getNamespace();
+        for (final NamespacedKey key : playerPlacedPDC.getKeys()) {
+            if (!key.getNamespace().equals(namespace)) continue;
+            final String[] parts = key.getKey().split("/");
+            if (parts.length != 3) continue;
+            try {
+                data.set(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), true);
+            } catch (final NumberFormatException ignored) {
+                // Not one of our keys
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public ChunkTrackingData read(@NotNull final Chunk chunk) {
+        final ChunkTrackingData data = new ChunkTrackingData();
+        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(chunk.getPersistentDataContainer());
+        if (playerPlacedPDC != null) {
+            readInto(playerPlacedPDC, data);
+        }
+        data.setDirty(false);
+        return data;
+    }
+
+    @Override
+    public void write(@NotNull final Chunk chunk, @NotNull final ChunkTrackingData data) {
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        if (data.isEmpty()) {
+            pdc.remove(playerPlacedTag);
+            return;
+        }
+        final PersistentDataContainer playerPlacedPDC = pdc.getAdapterContext().newPersistentDataContainer();
+        data.forEach(0, 0, (x, y, z) -> playerPlacedPDC.set(getKey(x, y, z), PersistentDataType.BYTE, (byte) 1));
+        pdc.set(playerPlacedTag, PersistentDataType.TAG_CONTAINER, playerPlacedPDC);
+    }
+
+    @Override
+    public boolean isTracked(@NotNull final Chunk chunk, final int x, final int y, final int z) {
+        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(chunk.getPersistentDataContainer());
+        return playerPlacedPDC != null && playerPlacedPDC.has(getKey(x, y, z), PersistentDataType.BYTE);
+    }
+
+    @Override
+    public void setTracked(@NotNull final Chunk chunk, final int x, final int y, final int z, final boolean tracked) {
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(pdc);
+        if (playerPlacedPDC == null) {
+            if (!tracked) return;
+            playerPlacedPDC = pdc.getAdapterContext().newPersistentDataContainer();
+        }
+        final NamespacedKey key = getKey(x, y, z);
+        if (tracked) {
+            playerPlacedPDC.set(key, PersistentDataType.BYTE, (byte) 1);
+        } else {
+            playerPlacedPDC.remove(key);
+        }
+        pdc.set(playerPlacedTag, PersistentDataType.TAG_CONTAINER, playerPlacedPDC);
+    }
+
+    @Nullable
+    private PersistentDataContainer getPlayerPlacedPDC(final PersistentDataContainer pdc) {
+        return pdc.get(playerPlacedTag, PersistentDataType.TAG_CONTAINER);
+    }
+
+    /**
+     * Creates a {@link NamespacedKey} for a block based on its chunk location
+     */
+    @Contract("_, _, _ -> new")
+    private static NamespacedKey getKey(final int x, final int y, final int z) {
+        //noinspection HardcodedFileSeparator
+        return new NamespacedKey(JeffLib.getPlugin(), String.format("%d/%d/%d", x, y, z));
+    }
+
+}
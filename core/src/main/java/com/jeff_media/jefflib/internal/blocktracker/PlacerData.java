@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores who placed a tracked block and when, keyed by the block's position key
+ * ({@code sectionY << 12 | index inside the section}). Placers are stored as indexes into a per-chunk dictionary of
+ * UUIDs, so every UUID is only stored once per chunk. Lookups are O(1) and don't allocate. Not thread safe.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class PlacerData {
+
+    /**
+     * Returned by {@link #getPlacedAt(int)} when no timestamp is known
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private final List<UUID> dictionary = new ArrayList<>();
+    private final Map<UUID, Integer> dictionaryIndexes = new HashMap<>();
+    private int[] keys;
+    private int[] placers;
+    private long[] timestamps;
+    private int size = 0;
+
+    public PlacerData() {
+        keys = new int[16];
+        placers = new int[16];
+        timestamps = new long[16];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private static int mix(final int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(final int key) {
+        final int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the placer of the block with the given position key
+     */
+    @Nullable
+    public UUID getPlacer(final int key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : dictionary.get(placers[index]);
+    }
+
+    /**
+     * Gets the time in milliseconds since epoch when the block with the given position key was placed, or {@link #UNKNOWN}
+     */
+    public long getPlacedAt(final int key) {
+        final int index = indexOf(key);
+        return index < 0 ? UNKNOWN : timestamps[index];
+    }
+
+    /**
+     * Stores the placer and placement time of the block with the given position key
+     */
+    public void set(final int key, @NotNull final UUID placer, final long timestamp) {
+        Integer dictionaryIndex = dictionaryIndexes.get(placer);
+        if (dictionaryIndex == null) {
+            dictionaryIndex = dictionary.size();
+            dictionary.add(placer);
+            dictionaryIndexes.put(placer, dictionaryIndex);
+        }
+        setRaw(key, dictionaryIndex, timestamp);
+    }
+
+    /**
+     * Stores the placer as index into {@link #getDictionary()} and the placement time of the block with the given position key
+     */
+    public void setRaw(final int key, final int dictionaryIndex, final long timestamp) {
+        int index = indexOf(key);
+        if (index < 0) {
+            if (size + 1 > keys.length / 2) {
+                resize(keys.length * 2);
+            }
+            index = insert(key);
+            size++;
+        }
+        placers[index] = dictionaryIndex;
+        timestamps[index] = timestamp;
+    }
+
+    /**
+     * Adds a UUID to the dictionary. Used when decoding.
+     */
+    public void addToDictionary(@NotNull final UUID placer) {
+        dictionaryIndexes.put(placer, dictionary.size());
+        dictionary.add(placer);
+    }
+
+    private int insert(final int key) {
+        final int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        return index;
+    }
+
+    private void resize(final int capacity) {
+        final int[] oldKeys = keys;
+        final int[] oldPlacers = placers;
+        final long[] oldTimestamps = timestamps;
+        keys = new int[capacity];
+        placers = new int[capacity];
+        timestamps = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            final int index = insert(oldKeys[i]);
+            placers[index] = oldPlacers[i];
+            timestamps[index] = oldTimestamps[i];
+        }
+    }
+
+    /**
+     * Removes the data of the block with the given position key
+     */
+    public void remove(final int key) {
+        int index = indexOf(key);
+        if (index < 0) return;
+        final int mask = keys.length - 1;
+        keys[index] = EMPTY;
+        size--;
+        // Re-insert the following entries of the same cluster so lookups don't stop at the gap
+        index = (index + 1) & mask;
+        while (keys[index] != EMPTY) {
+            final int movedKey = keys[index];
+            final int movedPlacer = placers[index];
+            final long movedTimestamp = timestamps[index];
+            keys[index] = EMPTY;
+            final int newIndex = insert(movedKey);
+            placers[newIndex] = movedPlacer;
+            timestamps[newIndex] = movedTimestamp;
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the amount of stored entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns all position keys in ascending order
+     */
+    @NotNull
+    public int[] getSortedKeys() {
+        final int[] result = new int[size];
+        int i = 0;
+        for (final int key : keys) {
+            if (key != EMPTY) result[i++] = key;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Gets the dictionary index of the placer of the block with the given position key, or -1
+     */
+    public int getDictionaryIndex(final int key) {
+        final int index = indexOf(key);
+        return index < 0 ? -1 : placers[index];
+    }
+
+    /**
+     * Returns the dictionary of placers
+     */
+    @NotNull
+    public List<UUID> getDictionary() {
+        return dictionary;
+    }
+
+}
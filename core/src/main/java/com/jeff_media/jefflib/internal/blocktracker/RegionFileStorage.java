@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores tracking data outside of the chunks in region-style files inside the plugin's data folder, one file per
+ * 32x32 chunks (see {@link TrackerRegionFile}). Reads happen when a chunk's data is first requested, writes are queued
+ * and written asynchronously in batches. At most {@value #DEFAULT_MAX_OPEN_REGIONS} region files are kept open by default; the least
+ * recently used one is written and closed when another one has to be opened.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class RegionFileStorage implements BlockTrackerStorage {
+
+    private static final long FLUSH_INTERVAL = 20 * 10L;
+    private static final int DEFAULT_MAX_OPEN_REGIONS = 64;
+
+    private final Plugin plugin;
+    private final File directory;
+    private final int maxOpenRegions;
+    private final Map<String, TrackerRegionFile> regions = new LinkedHashMap<String, TrackerRegionFile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, TrackerRegionFile> eldest) {
+            // Closed while holding the lock so the file can't be reopened before it's closed. Doesn't write anything.
+            return size() > maxOpenRegions && closeIfIdle(eldest.getKey(), eldest.getValue());
+        }
+    };
+    private final BukkitTask flushTask;
+
+    public RegionFileStorage(@NotNull final Plugin plugin) {
+        this(plugin, DEFAULT_MAX_OPEN_REGIONS);
+    }
+
+    /**
+     * @param maxOpenRegions maximum amount of region files kept open at the same time
+     */
+    public RegionFileStorage(@NotNull final Plugin plugin, final int maxOpenRegions) {
+        if (maxOpenRegions < 1) throw new IllegalArgumentException("maxOpenRegions must be at least 1");
+        this.plugin = plugin;
+        this.maxOpenRegions = maxOpenRegions;
+        this.directory = new File(plugin.getDataFolder(), "blocktracker");
+        this.flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::writePending, FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
+    /**
+     * Returns the directory containing the region files of the given world
+     */
+    @NotNull
+    public static File getWorldDirectory(@NotNull final File directory, @NotNull final World world) {
+        return new File(directory, world.getName());
+    }
+
+    /**
+     * Returns the name of the region file containing the given chunk
+     */
+    @NotNull
+    public static String getFileName(final int chunkX, final int chunkZ) {
+        return "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ".jbt";
+    }
+
+    private TrackerRegionFile getRegion(final World world, final int chunkX, final int chunkZ) {
+        final File worldDirectory = getWorldDirectory(directory, world);
+        final String fileName = getFileName(chunkX, chunkZ);
+        final String key = worldDirectory.getName() + "/" + fileName;
+        synchronized (regions) {
+            TrackerRegionFile region = regions.get(key);
+            if (region == null) {
+                try {
+                    Files.createDirectories(worldDirectory.toPath());
+                    region = new TrackerRegionFile(new File(worldDirectory, fileName).toPath());
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                regions.put(key, region);
+            }
+            return region;
+        }
+    }
+
+    /**
+     * Reads a chunk's payload, retrying with a freshly opened file if the region was closed in the meantime
+     */
+    private byte[] readRegion(final World world, final int chunkX, final int chunkZ) throws IOException {
+        while (true) {
+            try {
+                return getRegion(world, chunkX, chunkZ).read(TrackerRegionFile.getIndex(chunkX, chunkZ));
+            } catch (final ClosedChannelException ignored) {
+                // Evicted by another thread, reopen it
+            }
+        }
+    }
+
+    private boolean closeIfIdle(final String key, final TrackerRegionFile region) {
+        try {
+            return region.closeIfIdle();
+        } catch (final IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Could not close block tracker region file " + key, ex);
+            return true;
+        }
+    }
+
+    /**
+     * Closes the least recently used regions without queued writes until no more than the allowed amount is open
+     */
+    private void trimRegions() {
+        synchronized (regions) {
+            final Iterator<Map.Entry<String, TrackerRegionFile>> iterator = regions.entrySet().iterator();
+            int size = regions.size();
+            while (size > maxOpenRegions && iterator.hasNext()) {
+                final Map.Entry<String, TrackerRegionFile> entry = iterator.next();
+                if (closeIfIdle(entry.getKey(), entry.getValue())) {
+                    iterator.remove();
+                    size--;
+                }
+            }
+        }
+    }
+
+    private void closeRegion(final String key, final TrackerRegionFile region) {
+        try {
+            region.close();
+        } catch (final IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Could not close block tracker region file " + key, ex);
+        }
+    }
+
+    @NotNull
+    @Override
+    public ChunkTrackingData read(@NotNull final Chunk chunk) {
+        final ChunkTrackingData data = new ChunkTrackingData();
+        try {
+            final byte[] bytes = readRegion(chunk.getWorld(), chunk.getX(), chunk.getZ());
+            if (bytes != null) {
+                TrackingDataCodec.decode(bytes, data);
+            }
+        } catch (final IOException | UncheckedIOException | IllegalArgumentException ex) {
+            plugin.getLogger().log(Level.WARNING, "Could not read block tracker data of chunk " + chunk.getX() + ", " + chunk.getZ() + " in world " + chunk.getWorld().getName(), ex);
+            data.clear();
+        }
+        data.setDirty(false);
+        return data;
+    }
+
+    /**
+     * Reads the stored payload of a chunk without loading it, including queued writes. Safe to call from any thread.
+     *
+     * @return the payload, or null if the chunk has no data
+     */
+    @Nullable
+    public byte[] readStored(@NotNull final World world, final int chunkX, final int chunkZ) throws IOException {
+        try {
+            return readRegion(world, chunkX, chunkZ);
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Returns the directory containing the region files of the given world
+     */
+    @NotNull
+    public File getWorldDirectory(@NotNull final World world) {
+        return getWorldDirectory(directory, world);
+    }
+
+    @Override
+    public void write(@NotNull final Chunk chunk, @NotNull final ChunkTrackingData data) {
+        final int index = TrackerRegionFile.getIndex(chunk.getX(), chunk.getZ());
+        final byte[] bytes = data.isEmpty() ? null : TrackingDataCodec.encode(data);
+        try {
+            boolean queued;
+            do {
+                // Retry if the region was evicted and closed between looking it up and queueing the payload
+                queued = getRegion(chunk.getWorld(), chunk.getX(), chunk.getZ()).queue(index, bytes);
+            } while (!queued);
+        } catch (final UncheckedIOException ex) {
+            plugin.getLogger().log(Level.WARNING, "Could not write block tracker data of chunk " + chunk.getX() + ", " + chunk.getZ() + " in world " + chunk.getWorld().getName(), ex);
+        }
+    }
+
+    /**
+     * Writes all queued changes to disk. Safe to call from any thread.
+     */
+    public synchronized void writePending() {
+        final Map<String, TrackerRegionFile> snapshot;
+        synchronized (regions) {
+            snapshot = new LinkedHashMap<>(regions);
+        }
+        for (final Map.Entry<String, TrackerRegionFile> entry : snapshot.entrySet()) {
+            if (!entry.getValue().hasPending()) continue;
+            try {
+                entry.getValue().writePending();
+            } catch (final IOException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Could not write block tracker region file " + entry.getKey(), ex);
+            }
+        }
+        // Regions that couldn't be evicted because of queued writes can be closed now
+        trimRegions();
+    }
+
+    @Override
+    public void flush() {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, this::writePending);
+    }
+
+    @Override
+    public synchronized void close() {
+        flushTask.cancel();
+        synchronized (regions) {
+            for (final Map.Entry<String, TrackerRegionFile> entry : regions.entrySet()) {
+                closeRegion(entry.getKey(), entry.getValue());
+            }
+            regions.clear();
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.bukkit.Bukkit;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects blocks whose player placed state should be removed and flushes all of them at once on the next tick,
+ * instead of scheduling one task per block.
+ * <p>
+ * Must only be accessed from the main thread.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class RemovalQueue {
+
+    private final Plugin plugin;
+    private final Consumer<Collection<Block>> flusher;
+    private Set<Block> pending = new HashSet<>();
+    private boolean scheduled = false;
+    private long queuedRemovals = 0;
+    private long flushes = 0;
+
+    /**
+     * @param plugin  plugin used to schedule the flush task
+     * @param flusher consumer that removes the player placed state of all given blocks at once
+     */
+    public RemovalQueue(@NotNull final Plugin plugin, @NotNull final Consumer<Collection<Block>> flusher) {
+        this.plugin = plugin;
+        this.flusher = flusher;
+    }
+
+    /**
+     * Queues the block for removal on the next tick
+     */
+    public void add(@NotNull final Block block) {
+        if (pending.add(block)) {
+            queuedRemovals++;
+        }
+        schedule();
+    }
+
+    /**
+     * Queues all blocks for removal on the next tick
+     */
+    public void addAll(@NotNull final Collection<Block> blocks) {
+        for (final Block block : blocks) {
+            if (pending.add(block)) {
+                queuedRemovals++;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Removes the block from the queue, e.g. because something was placed at the same position again
+     */
+    public void cancel(@NotNull final Block block) {
+        if (!pending.isEmpty() && pending.remove(block)) {
+            queuedRemovals--;
+        }
+    }
+
+    private void schedule() {
+        if (scheduled || pending.isEmpty()) return;
+        scheduled = true;
+        Bukkit.getScheduler().runTask(plugin, this::flush);
+    }
+
+    /**
+     * Removes the player placed state of all queued blocks now
+     */
+    public void flush() {
+        scheduled = false;
+        if (pending.isEmpty()) return;
+        final Set<Block> blocks = pending;
+        pending = new HashSet<>();
+        flushes++;
+        flusher.accept(blocks);
+    }
+
+    /**
+     * Returns the total amount of blocks that have been queued for removal, not counting cancelled ones
+     */
+    public long getQueuedRemovals() {
+        return queuedRemovals;
+    }
+
+    /**
+     * Returns how often the queue has been flushed
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Returns the amount of removals that didn't need their own scheduler task and write
+     */
+    public long getCoalescedRemovals() {
+        return queuedRemovals - flushes;
+    }
+
+}
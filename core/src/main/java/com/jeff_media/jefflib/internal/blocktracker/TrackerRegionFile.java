@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A region-style file holding the tracking data of 32x32 chunks.
+ * <p>
+ * The file starts with a fixed-size, memory-mapped header containing one entry per chunk (sector offset and byte
+ * length), followed by the chunk payloads aligned to 4 KiB sectors. Payloads are read through a read-only memory
+ * mapping of the file. Writes are queued and only written to disk when {@link #writePending()} is called.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class TrackerRegionFile implements Closeable {
+
+    /**
+     * Amount of chunks per region file along each axis
+     */
+    public static final int REGION_SIZE = 32;
+
+    private static final int SECTOR_SIZE = 4096;
+    private static final int CHUNK_COUNT = REGION_SIZE * REGION_SIZE;
+    private static final int HEADER_ENTRY_SIZE = 8;
+    private static final int HEADER_SECTORS = CHUNK_COUNT * HEADER_ENTRY_SIZE / SECTOR_SIZE;
+    private static final byte[] DELETED = new byte[0];
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final BitSet usedSectors = new BitSet();
+    private final Map<Integer, byte[]> pending = new ConcurrentHashMap<>();
+    private final Object queueLock = new Object();
+    private boolean closed = false;
+    private MappedByteBuffer data;
+    private long mappedSize = 0;
+
+    public TrackerRegionFile(@NotNull final Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) HEADER_SECTORS * SECTOR_SIZE);
+        usedSectors.set(0, HEADER_SECTORS);
+        for (int index = 0; index < CHUNK_COUNT; index++) {
+            final int offset = header.getInt(index * HEADER_ENTRY_SIZE);
+            final int length = header.getInt(index * HEADER_ENTRY_SIZE + 4);
+            if (offset < HEADER_SECTORS || length <= 0) continue;
+            usedSectors.set(offset, offset + getSectorCount(length));
+        }
+    }
+
+    /**
+     * Gets the index of a chunk inside its region file
+     */
+    public static int getIndex(final int chunkX, final int chunkZ) {
+        return (chunkX & (REGION_SIZE - 1)) | ((chunkZ & (REGION_SIZE - 1)) * REGION_SIZE);
+    }
+
+    private static int getSectorCount(final int length) {
+        return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    }
+
+    /**
+     * Reads the payload of a chunk, including queued writes that haven't been written to disk yet
+     *
+     * @return the payload, or null if the chunk has no data
+     */
+    @Nullable
+    public byte[] read(final int index) throws IOException {
+        final byte[] queued = pending.get(index);
+        if (queued != null) {
+            return queued.length == 0 ? null : queued;
+        }
+        return readFromDisk(index);
+    }
+
+    private synchronized byte[] readFromDisk(final int index) throws IOException {
+        if (!channel.isOpen()) throw new ClosedChannelException();
+        final int offset = header.getInt(index * HEADER_ENTRY_SIZE);
+        final int length = header.getInt(index * HEADER_ENTRY_SIZE + 4);
+        if (offset < HEADER_SECTORS || length <= 0) return null;
+        final long start = (long) offset * SECTOR_SIZE;
+        if (data == null || start + length > mappedSize) {
+            mappedSize = channel.size();
+            if (start + length > mappedSize) {
+                throw new IOException("Chunk " + index + " in " + path + " points outside of the file");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, mappedSize);
+        }
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = data.duplicate();
+        view.position((int) start);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Queues the payload of a chunk to be written on the next call to {@link #writePending()}
+     *
+     * @param bytes the payload, or null to delete the chunk's data
+     * @return false if this file has already been closed and the payload was not queued
+     */
+    public boolean queue(final int index, @Nullable final byte[] bytes) {
+        synchronized (queueLock) {
+            if (closed) return false;
+            pending.put(index, bytes == null ? DELETED : bytes);
+            return true;
+        }
+    }
+
+    /**
+     * Checks whether there are queued writes
+     */
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Writes all queued payloads to disk. New payloads are always written to free sectors and synced before the header
+     * points to them, and the previously used sectors are only released once the header has been synced, so a crash
+     * can never leave the header pointing at partially written data.
+     */
+    public synchronized void writePending() throws IOException {
+        if (pending.isEmpty()) return;
+        final Map<Integer, byte[]> written = new HashMap<>();
+        final Map<Integer, int[]> locations = new HashMap<>();
+        for (final Map.Entry<Integer, byte[]> entry : pending.entrySet()) {
+            final byte[] bytes = entry.getValue();
+            written.put(entry.getKey(), bytes);
+            locations.put(entry.getKey(), bytes.length == 0 ? new int[] {0, 0} : new int[] {write(bytes), bytes.length});
+        }
+        channel.force(false);
+        final BitSet freed = new BitSet();
+        for (final Map.Entry<Integer, int[]> entry : locations.entrySet()) {
+            final int index = entry.getKey();
+            final int oldOffset = header.getInt(index * HEADER_ENTRY_SIZE);
+            final int oldLength = header.getInt(index * HEADER_ENTRY_SIZE + 4);
+            if (oldOffset >= HEADER_SECTORS && oldLength > 0) {
+                freed.set(oldOffset, oldOffset + getSectorCount(oldLength));
+            }
+            header.putInt(index * HEADER_ENTRY_SIZE, entry.getValue()[0]);
+            header.putInt(index * HEADER_ENTRY_SIZE + 4, entry.getValue()[1]);
+        }
+        header.force();
+        usedSectors.andNot(freed);
+        for (final Map.Entry<Integer, byte[]> entry : written.entrySet()) {
+            // Only remove the entry if it hasn't been replaced in the meantime
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a payload to a newly allocated run of sectors without touching the header
+     *
+     * @return the offset of the first sector
+     */
+    private int write(final byte[] bytes) throws IOException {
+        final int sectors = getSectorCount(bytes.length);
+        final int offset = allocate(sectors);
+        usedSectors.set(offset, offset + sectors);
+        channel.write(ByteBuffer.wrap(bytes), (long) offset * SECTOR_SIZE);
+        return offset;
+    }
+
+    private int allocate(final int sectors) {
+        int start = HEADER_SECTORS;
+        while (true) {
+            start = usedSectors.nextClearBit(start);
+            final int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= sectors) return start;
+            start = end;
+        }
+    }
+
+    /**
+     * Closes this file if there are no queued writes, without writing or syncing anything
+     *
+     * @return true if the file was closed, false if it still has queued writes
+     */
+    public boolean closeIfIdle() throws IOException {
+        synchronized (queueLock) {
+            if (closed) return true;
+            // Queued payloads are only removed after they have been written and synced
+            if (!pending.isEmpty()) return false;
+            closed = true;
+        }
+        channel.close();
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        synchronized (queueLock) {
+            closed = true;
+        }
+        try {
+            writePending();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
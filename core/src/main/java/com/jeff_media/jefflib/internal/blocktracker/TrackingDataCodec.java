@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Turns {@link ChunkTrackingData} into a compact byte array and back.
+ * <p>
+ * Format: one version byte, the amount of non-empty sections as varint, and one entry per non-empty section,
+ * consisting of the section's Y coordinate as signed byte, an encoding byte and the section's bits. The bits are
+ * either stored as 64 raw longs or, if that's smaller, as run-length encoded varints: the amount of runs, followed
+ * by the length of every run, alternating between untracked and tracked positions and starting with untracked ones.
+ * <p>
+ * If placer data is present, the sections are followed by the dictionary of placer UUIDs and one entry per placed
+ * block. Entries are sorted by position key and store the varint delta to the previous key, the varint dictionary
+ * index and the zigzag varint delta to the previous timestamp. Empty data is written as the version byte only.
+ * <p>
+ * Data written in the older {@link #VERSION_RAW} and {@link #VERSION_PLACERS} formats can still be decoded.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class TrackingDataCodec {
+
+    /**
+     * Raw bitsets for every non-empty section
+     */
+    public static final byte VERSION_RAW = 1;
+
+    /**
+     * Raw bitsets for every non-empty section, followed by placer data
+     */
+    public static final byte VERSION_PLACERS = 2;
+
+    /**
+     * Raw or run-length encoded bitsets for every non-empty section, followed by optional placer data
+     */
+    public static final byte VERSION_PACKED = 3;
+
+    /**
+     * Section is stored as raw longs
+     */
+    public static final byte SECTION_RAW = 0;
+
+    /**
+     * Section is stored as run-length encoded varints
+     */
+    public static final byte SECTION_RLE = 1;
+
+    private static final int SECTION_BITS = ChunkTrackingData.SECTION_LONGS * Long.SIZE;
+    private static final int SECTION_BYTES = ChunkTrackingData.SECTION_LONGS * Long.BYTES;
+
+    private TrackingDataCodec() {
+    }
+
+    /**
+     * Encodes the given data
+     */
+    @NotNull
+    public static byte[] encode(@NotNull final ChunkTrackingData data) {
+        final PlacerData placers = data.getPlacers();
+        final boolean hasPlacers = placers != null && placers.size() > 0;
+        int sectionCount = 0;
+        for (int sectionY = data.getMinSection(); sectionY < data.getMaxSection(); sectionY++) {
+            if (!isEmpty(data.getSection(sectionY))) sectionCount++;
+        }
+        if (sectionCount == 0 && !hasPlacers) {
+            return new byte[] {VERSION_PACKED};
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16 + sectionCount * (2 + SECTION_BYTES));
+        final ByteArrayOutputStream runs = new ByteArrayOutputStream(SECTION_BYTES);
+        out.write(VERSION_PACKED);
+        writeVarLong(out, sectionCount);
+        for (int sectionY = data.getMinSection(); sectionY < data.getMaxSection(); sectionY++) {
+            final long[] section = data.getSection(sectionY);
+            if (isEmpty(section)) continue;
+            out.write(sectionY);
+            runs.reset();
+            if (encodeRuns(section, runs)) {
+                out.write(SECTION_RLE);
+                final byte[] encoded = runs.toByteArray();
+                out.write(encoded, 0, encoded.length);
+            } else {
+                out.write(SECTION_RAW);
+                for (final long word : section) {
+                    writeLong(out, word);
+                }
+            }
+        }
+        if (hasPlacers) {
+            writePlacers(out, placers);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the run-length encoding of the given section
+     *
+     * @return false if the encoding would not be smaller than the raw bitset
+     */
+    private static boolean encodeRuns(final long[] section, final ByteArrayOutputStream out) {
+        int runCount = 0;
+        int position = 0;
+        boolean value = false;
+        while (position < SECTION_BITS) {
+            position = nextBit(section, position, !value);
+            value = !value;
+            runCount++;
+        }
+        // Trailing untracked positions are implicit
+        if (value) runCount--;
+        writeVarLong(out, runCount);
+        position = 0;
+        value = false;
+        for (int i = 0; i < runCount; i++) {
+            final int next = nextBit(section, position, !value);
+            writeVarLong(out, next - position);
+            if (out.size() >= SECTION_BYTES) return false;
+            position = next;
+            value = !value;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the next bit at or after the given index that has the given value, or the section size
+     */
+    private static int nextBit(final long[] section, final int from, final boolean value) {
+        int wordIndex = from >>> 6;
+        long word = (value ? section[wordIndex] : ~section[wordIndex]) & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex == section.length) return SECTION_BITS;
+            word = value ? section[wordIndex] : ~section[wordIndex];
+        }
+        return (wordIndex << 6) | Long.numberOfTrailingZeros(word);
+    }
+
+    private static void writePlacers(final ByteArrayOutputStream out, final PlacerData placers) {
+        // Only write UUIDs that are still in use, remapping their dictionary indexes
+        final int[] keys = placers.getSortedKeys();
+        final List<UUID> dictionary = placers.getDictionary();
+        final int[] remapped = new int[dictionary.size()];
+        Arrays.fill(remapped, -1);
+        int used = 0;
+        for (final int key : keys) {
+            final int index = placers.getDictionaryIndex(key);
+            if (remapped[index] == -1) remapped[index] = used++;
+        }
+        final UUID[] usedUuids = new UUID[used];
+        for (int i = 0; i < remapped.length; i++) {
+            if (remapped[i] != -1) usedUuids[remapped[i]] = dictionary.get(i);
+        }
+        writeVarLong(out, used);
+        for (final UUID uuid : usedUuids) {
+            writeLong(out, uuid.getMostSignificantBits());
+            writeLong(out, uuid.getLeastSignificantBits());
+        }
+
+        writeVarLong(out, keys.length);
+        long lastTimestamp = 0;
+        for (int i = 0; i < keys.length; i++) {
+            final int key = keys[i];
+            final long timestamp = placers.getPlacedAt(key);
+            // The first key can be negative, the following deltas can't
+            writeVarLong(out, i == 0 ? zigzag(key) : key - keys[i - 1]);
+            writeVarLong(out, remapped[placers.getDictionaryIndex(key)]);
+            writeVarLong(out, zigzag(timestamp - lastTimestamp));
+            lastTimestamp = timestamp;
+        }
+    }
+
+    /**
+     * Decodes the given bytes into the given data, adding to the already tracked positions
+     *
+     * @throws IllegalArgumentException if the bytes are not valid tracking data
+     */
+    public static void decode(@NotNull final byte[] bytes, @NotNull final ChunkTrackingData into) {
+        if (bytes.length == 0) return;
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final byte version = buffer.get();
+        try {
+            if (version == VERSION_RAW) {
+                while (buffer.hasRemaining()) {
+                    readRawSection(buffer, into, buffer.get());
+                }
+            } else if (version == VERSION_PLACERS) {
+                final long sectionCount = readVarLong(buffer);
+                for (long i = 0; i < sectionCount; i++) {
+                    readRawSection(buffer, into, buffer.get());
+                }
+                readPlacers(buffer, into.getOrCreatePlacers());
+            } else if (version == VERSION_PACKED) {
+                if (!buffer.hasRemaining()) return;
+                final long sectionCount = readVarLong(buffer);
+                for (long i = 0; i < sectionCount; i++) {
+                    readPackedSection(buffer, into);
+                }
+                if (buffer.hasRemaining()) {
+                    readPlacers(buffer, into.getOrCreatePlacers());
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown block tracker data version: " + version);
+            }
+        } catch (final BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated block tracker data", ex);
+        }
+    }
+
+    private static void readPackedSection(final ByteBuffer buffer, final ChunkTrackingData into) {
+        final int sectionY = buffer.get();
+        final byte encoding = buffer.get();
+        if (encoding == SECTION_RAW) {
+            readRawSection(buffer, into, sectionY);
+        } else if (encoding == SECTION_RLE) {
+            final long[] section = new long[ChunkTrackingData.SECTION_LONGS];
+            final long runCount = readVarLong(buffer);
+            int position = 0;
+            boolean value = false;
+            for (long i = 0; i < runCount; i++) {
+                final long length = readVarLong(buffer);
+                if (length < 0 || position + length > SECTION_BITS) {
+                    throw new IllegalArgumentException("Invalid run length in block tracker data: " + length);
+                }
+                final int end = position + (int) length;
+                if (value) {
+                    for (int bit = position; bit < end; bit++) {
+                        section[bit >>> 6] |= 1L << bit;
+                    }
+                }
+                position = end;
+                value = !value;
+            }
+            merge(into, sectionY, section);
+        } else {
+            throw new IllegalArgumentException("Unknown block tracker section encoding: " + encoding);
+        }
+    }
+
+    private static void readRawSection(final ByteBuffer buffer, final ChunkTrackingData into, final int sectionY) {
+        final long[] section = new long[ChunkTrackingData.SECTION_LONGS];
+        for (int i = 0; i < section.length; i++) {
+            section[i] = buffer.getLong();
+        }
+        merge(into, sectionY, section);
+    }
+
+    private static void readPlacers(final ByteBuffer buffer, final PlacerData into) {
+        final int offset = into.getDictionary().size();
+        final int dictionarySize = (int) readVarLong(buffer);
+        for (int i = 0; i < dictionarySize; i++) {
+            into.addToDictionary(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        final long count = readVarLong(buffer);
+        int key = 0;
+        long timestamp = 0;
+        for (long i = 0; i < count; i++) {
+            final long keyValue = readVarLong(buffer);
+            key = i == 0 ? (int) unzigzag(keyValue) : key + (int) keyValue;
+            final int dictionaryIndex = (int) readVarLong(buffer);
+            timestamp += unzigzag(readVarLong(buffer));
+            if (dictionaryIndex < 0 || dictionaryIndex >= dictionarySize) {
+                throw new IllegalArgumentException("Invalid placer index: " + dictionaryIndex);
+            }
+            into.setRaw(key, offset + dictionaryIndex, timestamp);
+        }
+    }
+
+    private static void writeLong(final ByteArrayOutputStream out, final long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static void writeVarLong(final ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(final ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint in block tracker data");
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void merge(final ChunkTrackingData into, final int sectionY, final long[] section) {
+        final long[] existing = into.getSection(sectionY);
+        if (existing == null) {
+            into.setSection(sectionY, section);
+            return;
+        }
+        for (int i = 0; i < existing.length; i++) {
+            existing[i] |= section[i];
+        }
+    }
+
+    private static boolean isEmpty(final long[] section) {
+        if (section == null) return true;
+        for (final long word : section) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.listeners;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.blocktracker.BlockTrackerCache;
+import com.jeff_media.jefflib.internal.blocktracker.RemovalQueue;
+import java.util.function.Supplier;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldSaveEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Loads and writes back the {@link BlockTrackerCache} when chunks load, unload or get saved. Drains the
+ * {@link RemovalQueue} before everything is written on disable.
+ */
+@Internal
+public final class BlockTrackCacheListener implements Listener {
+
+    private final Supplier<BlockTrackerCache> cacheSupplier;
+    private final RemovalQueue removalQueue;
+
+    public BlockTrackCacheListener(final Supplier<BlockTrackerCache> cacheSupplier, final RemovalQueue removalQueue) {
+        this.cacheSupplier = cacheSupplier;
+        this.removalQueue = removalQueue;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(final ChunkLoadEvent event) {
+        final BlockTrackerCache cache = cacheSupplier.get();
+        if (cache == null) return;
+        cache.load(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(final ChunkUnloadEvent event) {
+        final BlockTrackerCache cache = cacheSupplier.get();
+        if (cache == null) return;
+        cache.unload(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onWorldSave(final WorldSaveEvent event) {
+        final BlockTrackerCache cache = cacheSupplier.get();
+        if (cache == null) return;
+        cache.save(event.getWorld());
+        cache.getStorage().flush();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(final WorldUnloadEvent event) {
+        final BlockTrackerCache cache = cacheSupplier.get();
+        if (cache == null) return;
+        cache.unload(event.getWorld());
+    }
+
+    @EventHandler
+    public void onDisable(final PluginDisableEvent event) {
+        if (event.getPlugin() != JeffLib.getPlugin()) return;
+        // The scheduled flush won't run anymore once the plugin is disabled
+        removalQueue.flush();
+        final BlockTrackerCache cache = cacheSupplier.get();
+        if (cache == null) return;
+        cache.saveAll();
+        cache.getStorage().close();
+    }
+
+}
@@ -18,18 +18,24 @@
 package com.jeff_media.jefflib.internal.listeners;
 
 import com.jeff_media.jefflib.BlockTracker;
-import com.jeff_media.jefflib.JeffLib;
 import com.jeff_media.jefflib.internal.annotations.Internal;
-import org.bukkit.Bukkit;
+import com.jeff_media.jefflib.internal.blocktracker.RemovalQueue;
+import java.util.ArrayList;
+import java.util.List;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockState;
+import org.bukkit.block.PistonMoveReaction;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.world.StructureGrowEvent;
-import org.bukkit.plugin.Plugin;
 
 /**
  * Keeps track of player placed blocks
@@ -38,27 +44,78 @@ import org.bukkit.plugin.Plugin;
 @Internal
 public final class BlockTrackListener implements Listener {
 
-    private final Plugin plugin = JeffLib.getPlugin();
+    private final RemovalQueue removalQueue;
+
+    public BlockTrackListener(final RemovalQueue removalQueue) {
+        this.removalQueue = removalQueue;
+    }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlace(final BlockPlaceEvent event) {
+        // Don't let a removal queued earlier this tick untrack the newly placed block
+        removalQueue.cancel(event.getBlock());
         if (!BlockTracker.isTrackedBlockType(event.getBlock().getType())) return;
-        BlockTracker.setPlayerPlacedBlock(event.getBlock(), true);
+        if (BlockTracker.isPlacerTrackingEnabled()) {
+            BlockTracker.setPlayerPlacedBlock(event.getBlock(), event.getPlayer().getUniqueId());
+        } else {
+            BlockTracker.setPlayerPlacedBlock(event.getBlock(), true);
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBreak(final BlockBreakEvent event) {
         if (BlockTracker.isPlayerPlacedBlock(event.getBlock())) {
-            Bukkit.getScheduler().runTaskLater(plugin, () -> BlockTracker.setPlayerPlacedBlock(event.getBlock(), false), 1L);
+            removalQueue.add(event.getBlock());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onStructureGrow(final StructureGrowEvent event) {
+        final List<Block> blocks = new ArrayList<>(event.getBlocks().size());
         for (final BlockState blockState : event.getBlocks()) {
-            final Block block = blockState.getBlock();
-            BlockTracker.setPlayerPlacedBlock(block, false);
+            blocks.add(blockState.getBlock());
         }
+        BlockTracker.setPlayerPlacedBlocks(blocks, false);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(final BlockPistonExtendEvent event) {
+        onPistonMove(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(final BlockPistonRetractEvent event) {
+        onPistonMove(event.getBlocks(), event.getDirection());
+    }
+
+    /**
+     * Clears the blocks that are destroyed by the piston and moves the others. The destroyed blocks are cleared right
+     * away, because a moved block can end up at their position.
+     */
+    private void onPistonMove(final List<Block> blocks, final BlockFace direction) {
+        final List<Block> moved = new ArrayList<>(blocks.size());
+        final List<Block> broken = new ArrayList<>();
+        for (final Block block : blocks) {
+            if (block.getPistonMoveReaction() == PistonMoveReaction.BREAK) {
+                broken.add(block);
+            } else {
+                moved.add(block);
+            }
+        }
+        if (!broken.isEmpty()) {
+            BlockTracker.setPlayerPlacedBlocks(broken, false);
+        }
+        BlockTracker.moveBlocks(moved, direction);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(final EntityExplodeEvent event) {
+        removalQueue.addAll(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(final BlockExplodeEvent event) {
+        removalQueue.addAll(event.blockList());
     }
 
 
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.listeners;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.pdc.OfflinePlayerPdcCache;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Invalidates the {@link OfflinePlayerPdcCache} when players join or quit, as the server then owns or rewrites their data file
+ */
+@Internal
+public final class OfflinePlayerPdcCacheListener implements Listener {
+
+    private final Supplier<OfflinePlayerPdcCache> cacheSupplier;
+
+    public OfflinePlayerPdcCacheListener(final Supplier<OfflinePlayerPdcCache> cacheSupplier) {
+        this.cacheSupplier = cacheSupplier;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(final PlayerJoinEvent event) {
+        final OfflinePlayerPdcCache cache = cacheSupplier.get();
+        if (cache == null) return;
+        cache.invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(final PlayerQuitEvent event) {
+        final OfflinePlayerPdcCache cache = cacheSupplier.get();
+        if (cache == null) return;
+        final UUID uuid = event.getPlayer().getUniqueId();
+        cache.invalidate(uuid);
+        // The server writes the data file after calling the event, so anything loaded in between is outdated
+        Bukkit.getScheduler().runTask(JeffLib.getPlugin(), () -> cache.invalidate(uuid));
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.listeners;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+
+/**
+ * Runs a task when the plugin using JeffLib gets disabled, e.g. to shut down thread pools
+ */
+@Internal
+public final class ShutdownListener implements Listener {
+
+    private final Runnable shutdown;
+
+    public ShutdownListener(final Runnable shutdown) {
+        this.shutdown = shutdown;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisable(final PluginDisableEvent event) {
+        if (event.getPlugin() != JeffLib.getPlugin()) return;
+        shutdown.run();
+    }
+
+}
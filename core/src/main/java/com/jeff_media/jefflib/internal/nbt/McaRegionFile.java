@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.nbt;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read-only access to Minecraft's .mca region files, containing 32x32 chunks each. Must not be used for files the
+ * server is currently writing to a chunk that's being read, which is why it should only be used for unloaded chunks.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class McaRegionFile implements Closeable {
+
+    /**
+     * Amount of chunks per region file along each axis
+     */
+    public static final int REGION_SIZE = 32;
+
+    private static final int SECTOR_SIZE = 4096;
+    private static final int CHUNK_COUNT = REGION_SIZE * REGION_SIZE;
+    private static final int COMPRESSION_GZIP = 1;
+    private static final int COMPRESSION_ZLIB = 2;
+    private static final int COMPRESSION_NONE = 3;
+    private static final int EXTERNAL_FLAG = 0x80;
+
+    private final File file;
+    private final RandomAccessFile access;
+    private final int[] locations = new int[CHUNK_COUNT];
+    private final int regionX;
+    private final int regionZ;
+
+    /**
+     * @param file region file, named "r.&lt;x&gt;.&lt;z&gt;.mca" like the server's files
+     */
+    public McaRegionFile(@NotNull final File file) throws IOException {
+        this.file = file;
+        final String[] parts = file.getName().split("\\.");
+        try {
+            if (parts.length != 4) throw new NumberFormatException();
+            this.regionX = Integer.parseInt(parts[1]);
+            this.regionZ = Integer.parseInt(parts[2]);
+        } catch (final NumberFormatException ex) {
+            throw new IOException("Invalid region file name " + file.getName());
+        }
+        this.access = new RandomAccessFile(file, "r");
+        if (access.length() >= SECTOR_SIZE) {
+            for (int i = 0; i < CHUNK_COUNT; i++) {
+                locations[i] = access.readInt();
+            }
+        }
+    }
+
+    /**
+     * Gets the index of a chunk inside its region file
+     */
+    public static int getIndex(final int chunkX, final int chunkZ) {
+        return (chunkX & (REGION_SIZE - 1)) | ((chunkZ & (REGION_SIZE - 1)) * REGION_SIZE);
+    }
+
+    /**
+     * Checks whether the chunk with the given index has been saved to this file
+     */
+    public boolean contains(final int index) {
+        return locations[index] != 0;
+    }
+
+    /**
+     * Opens the uncompressed NBT data of the chunk with the given index
+     *
+     * @return the chunk's NBT data, or null if the chunk hasn't been saved
+     */
+    @Nullable
+    public DataInputStream openChunk(final int index) throws IOException {
+        final int location = locations[index];
+        if (location == 0) return null;
+        final long offset = (long) (location >>> 8) * SECTOR_SIZE;
+        final int sectors = location & 0xFF;
+        if (offset + (long) sectors * SECTOR_SIZE > access.length()) {
+            throw new IOException("Chunk " + index + " in " + file + " points outside of the file");
+        }
+        access.seek(offset);
+        final int length = access.readInt();
+        // External chunks only store the compression type here
+        if (length < 1 || length > sectors * SECTOR_SIZE) {
+            throw new IOException("Invalid length " + length + " for chunk " + index + " in " + file);
+        }
+        int compression = access.readUnsignedByte();
+        final byte[] compressed;
+        if ((compression & EXTERNAL_FLAG) != 0) {
+            // Oversized chunks are stored in their own c.<x>.<z>.mcc file next to the region file
+            compression &= ~EXTERNAL_FLAG;
+            compressed = Files.readAllBytes(getExternalFile(index).toPath());
+        } else {
+            if (length == 1) throw new IOException("Invalid length " + length + " for chunk " + index + " in " + file);
+            compressed = new byte[length - 1];
+            access.readFully(compressed);
+        }
+        final InputStream raw = new ByteArrayInputStream(compressed);
+        switch (compression) {
+            case COMPRESSION_GZIP:
+                return new DataInputStream(new BufferedInputStream(new GZIPInputStream(raw)));
+            case COMPRESSION_ZLIB:
+                return new DataInputStream(new BufferedInputStream(new InflaterInputStream(raw)));
+            case COMPRESSION_NONE:
+                return new DataInputStream(raw);
+            default:
+                throw new IOException("Unknown compression type " + compression + " for chunk " + index + " in " + file);
+        }
+    }
+
+    /**
+     * Returns the file an oversized chunk with the given index is stored in
+     */
+    @NotNull
+    public File getExternalFile(final int index) {
+        final int chunkX = regionX * REGION_SIZE + (index & (REGION_SIZE - 1));
+        final int chunkZ = regionZ * REGION_SIZE + index / REGION_SIZE;
+        return new File(file.getParentFile(), "c." + chunkX + "." + chunkZ + ".mcc");
+    }
+
+    @Override
+    public void close() throws IOException {
+        access.close();
+    }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.nbt;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads binary NBT data one tag at a time without building the whole tree in memory. Tags that aren't needed can be
+ * skipped without allocating their contents.
+ * <p>
+ * Compound entries are read using {@link #nextEntry()}, which returns the type of the next entry and remembers its
+ * name, until it returns {@link #TAG_END}. The entry's payload must then either be read or skipped using
+ * {@link #skip(int)}, or copied using {@link #copy(int, DataOutput)}.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class NbtReader {
+
+    public static final int TAG_END = 0;
+    public static final int TAG_BYTE = 1;
+    public static final int TAG_SHORT = 2;
+    public static final int TAG_INT = 3;
+    public static final int TAG_LONG = 4;
+    public static final int TAG_FLOAT = 5;
+    public static final int TAG_DOUBLE = 6;
+    public static final int TAG_BYTE_ARRAY = 7;
+    public static final int TAG_STRING = 8;
+    public static final int TAG_LIST = 9;
+    public static final int TAG_COMPOUND = 10;
+    public static final int TAG_INT_ARRAY = 11;
+    public static final int TAG_LONG_ARRAY = 12;
+
+    private final DataInput input;
+    private String name = "";
+    private byte[] buffer;
+
+    public NbtReader(@NotNull final DataInput input) {
+        this.input = input;
+    }
+
+    /**
+     * Reads the type and name of the root tag
+     *
+     * @return the root tag's type
+     */
+    public int readRoot() throws IOException {
+        return nextEntry();
+    }
+
+    /**
+     * Reads the type and name of the next entry of the current compound
+     *
+     * @return the entry's type, or {@link #TAG_END} if the compound has no more entries
+     */
+    public int nextEntry() throws IOException {
+        final int type = input.readUnsignedByte();
+        name = type == TAG_END ? "" : input.readUTF();
+        return type;
+    }
+
+    /**
+     * Returns the name of the entry last read by {@link #nextEntry()}
+     */
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the underlying input, e.g. to read primitive payloads
+     */
+    @NotNull
+    public DataInput getInput() {
+        return input;
+    }
+
+    /**
+     * Reads the payload of a {@link #TAG_STRING}
+     */
+    @NotNull
+    public String readString() throws IOException {
+        return input.readUTF();
+    }
+
+    /**
+     * Reads the payload of a {@link #TAG_BYTE_ARRAY}
+     */
+    @NotNull
+    public byte[] readByteArray() throws IOException {
+        final int length = input.readInt();
+        if (length < 0) throw new IOException("Negative byte array length: " + length);
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Skips the payload of a tag of the given type
+     */
+    public void skip(final int type) throws IOException {
+        switch (type) {
+            case TAG_END:
+                return;
+            case TAG_BYTE:
+                skipBytes(1);
+                return;
+            case TAG_SHORT:
+                skipBytes(2);
+                return;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skipBytes(4);
+                return;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skipBytes(8);
+                return;
+            case TAG_BYTE_ARRAY:
+                skipBytes(input.readInt());
+                return;
+            case TAG_STRING:
+                skipBytes(input.readUnsignedShort());
+                return;
+            case TAG_LIST:
+                final int elementType = input.readUnsignedByte();
+                final int size = input.readInt();
+                for (int i = 0; i < size; i++) {
+                    skip(elementType);
+                }
+                return;
+            case TAG_COMPOUND:
+                int entryType;
+                while ((entryType = input.readUnsignedByte()) != TAG_END) {
+                    skipBytes(input.readUnsignedShort());
+                    skip(entryType);
+                }
+                return;
+            case TAG_INT_ARRAY:
+                skipBytes(input.readInt() * 4L);
+                return;
+            case TAG_LONG_ARRAY:
+                skipBytes(input.readInt() * 8L);
+                return;
+            default:
+                throw new IOException("Unknown NBT tag type: " + type);
+        }
+    }
+
+    /**
+     * Copies the payload of a tag of the given type to the given output
+     */
+    public void copy(final int type, @NotNull final DataOutput output) throws IOException {
+        switch (type) {
+            case TAG_END:
+                return;
+            case TAG_BYTE:
+                output.writeByte(input.readByte());
+                return;
+            case TAG_SHORT:
+                output.writeShort(input.readShort());
+                return;
+            case TAG_INT:
+            case TAG_FLOAT:
+                output.writeInt(input.readInt());
+                return;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                output.writeLong(input.readLong());
+                return;
+            case TAG_BYTE_ARRAY:
+                copyArray(output, 1);
+                return;
+            case TAG_STRING:
+                final int length = input.readUnsignedShort();
+                output.writeShort(length);
+                copyBytes(length, output);
+                return;
+            case TAG_LIST:
+                final int elementType = input.readUnsignedByte();
+                final int size = input.readInt();
+                output.writeByte(elementType);
+                output.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    copy(elementType, output);
+                }
+                return;
+            case TAG_COMPOUND:
+                int entryType;
+                while ((entryType = input.readUnsignedByte()) != TAG_END) {
+                    output.writeByte(entryType);
+                    final int nameLength = input.readUnsignedShort();
+                    output.writeShort(nameLength);
+                    copyBytes(nameLength, output);
+                    copy(entryType, output);
+                }
+                output.writeByte(TAG_END);
+                return;
+            case TAG_INT_ARRAY:
+                copyArray(output, 4);
+                return;
+            case TAG_LONG_ARRAY:
+                copyArray(output, 8);
+                return;
+            default:
+                throw new IOException("Unknown NBT tag type: " + type);
+        }
+    }
+
+    private void copyArray(final DataOutput output, final int elementSize) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) throw new IOException("Negative NBT array length: " + length);
+        output.writeInt(length);
+        copyBytes((long) length * elementSize, output);
+    }
+
+    private void copyBytes(long count, final DataOutput output) throws IOException {
+        if (buffer == null) buffer = new byte[8192];
+        while (count > 0) {
+            final int chunk = (int) Math.min(count, buffer.length);
+            input.readFully(buffer, 0, chunk);
+            output.write(buffer, 0, chunk);
+            count -= chunk;
+        }
+    }
+
+    private void skipBytes(long count) throws IOException {
+        if (count < 0) throw new IOException("Negative NBT payload length: " + count);
+        while (count > 0) {
+            final int skipped = input.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                // DataInput#skipBytes may skip less than requested without reaching the end
+                input.readByte();
+                count--;
+            } else {
+                count -= skipped;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.nbt;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Extracts the "BukkitValues" compound, which holds a player's PersistentDataContainer, from a player data (.dat) file
+ * without parsing the rest of the file. Inventory, ender chest, attributes and everything else is skipped, and
+ * reading stops as soon as the compound has been found.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class PlayerDataReader {
+
+    /**
+     * Name of the compound tag holding the player's PDC
+     */
+    public static final String BUKKIT_VALUES = "BukkitValues";
+
+    private PlayerDataReader() {
+    }
+
+    /**
+     * Reads the "BukkitValues" compound from the given gzip compressed player data file
+     *
+     * @param keyFilter optional filter for the entries' names ("namespace:key"). Entries that don't match are skipped.
+     * @return the compound as unnamed root tag in binary NBT, or null if the file has no PDC or no entry matched the filter
+     */
+    @Nullable
+    public static byte[] readBukkitValues(@NotNull final File file, @Nullable final Predicate<String> keyFilter) throws IOException {
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 8192), 8192))) {
+            return readBukkitValues(input, keyFilter);
+        }
+    }
+
+    /**
+     * Reads the "BukkitValues" compound from the given uncompressed player data
+     *
+     * @see #readBukkitValues(File, Predicate)
+     */
+    @Nullable
+    public static byte[] readBukkitValues(@NotNull final DataInput input, @Nullable final Predicate<String> keyFilter) throws IOException {
+        final NbtReader reader = new NbtReader(input);
+        if (reader.readRoot() != NbtReader.TAG_COMPOUND) {
+            throw new IOException("Player data doesn't start with a compound tag");
+        }
+        int type;
+        while ((type = reader.nextEntry()) != NbtReader.TAG_END) {
+            if (type == NbtReader.TAG_COMPOUND && reader.getName().equals(BUKKIT_VALUES)) {
+                return copyEntries(reader, keyFilter);
+            }
+            reader.skip(type);
+        }
+        return null;
+    }
+
+    private static byte[] copyEntries(final NbtReader reader, @Nullable final Predicate<String> keyFilter) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(NbtReader.TAG_COMPOUND);
+        output.writeUTF("");
+        int copied = 0;
+        int type;
+        while ((type = reader.nextEntry()) != NbtReader.TAG_END) {
+            if (keyFilter != null && !keyFilter.test(reader.getName())) {
+                reader.skip(type);
+                continue;
+            }
+            output.writeByte(type);
+            output.writeUTF(reader.getName());
+            reader.copy(type, output);
+            copied++;
+        }
+        output.writeByte(NbtReader.TAG_END);
+        if (copied == 0 && keyFilter != null) return null;
+        return bytes.toByteArray();
+    }
+
+}
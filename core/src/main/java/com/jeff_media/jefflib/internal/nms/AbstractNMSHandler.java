@@ -31,6 +31,8 @@ import com.jeff_media.jefflib.data.tuples.Pair;
 import com.jeff_media.jefflib.internal.annotations.Internal;
 import com.jeff_media.jefflib.internal.annotations.Tested;
 import com.mojang.authlib.GameProfile;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.Set;
@@ -163,6 +165,22 @@ public interface AbstractNMSHandler {
 
     void deserializePdc(String serializedPdc, PersistentDataContainer target) throws Exception;
 
+    void writePdc(PersistentDataContainer pdc, DataOutput output) throws IOException;
+
+    void readPdc(DataInput input, PersistentDataContainer target) throws IOException;
+
+    /**
+     * Returns the NBT tag type ID of the given key in a CraftPersistentDataContainer, or 0 if the key doesn't exist
+     */
+    int getPdcTagType(PersistentDataContainer pdc, NamespacedKey key);
+
+    void writeItemStack(ItemStack itemStack, DataOutput output) throws IOException;
+
+    /**
+     * Reads an ItemStack written by {@link #writeItemStack(ItemStack, DataOutput)}, upgrading it from the given data version to the current one
+     */
+    ItemStack readItemStack(DataInput input, int dataVersion) throws IOException;
+
     @Tested("1.19.4")
     void respawnPlayer(Player player);
 
@@ -170,8 +188,6 @@ public interface AbstractNMSHandler {
 
     void applyNbt(Entity entity, String nbtData);
 
-    OfflinePlayerPersistentDataContainer getPDCFromDatFile(File file) throws IOException;
-
-    void updatePdcInDatFile(OfflinePlayerPersistentDataContainer pdc) throws IOException;
+    void updatePdcInDatFile(OfflinePlayerPersistentDataContainer pdc, File file) throws IOException;
 
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.pdc;
+
+import com.jeff_media.jefflib.data.OfflinePlayerPersistentDataContainer;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bounded cache of loaded {@link OfflinePlayerPersistentDataContainer}s. The least recently used entry is evicted
+ * when the cache is full. Entries expire after a fixed time; expired entries are replaced when they are requested
+ * again or dropped once they become the least recently used entry, the cache is never scanned as a whole. Entries
+ * are stored as futures, so concurrent requests for the same player share one disk read. Failed loads are not cached.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class OfflinePlayerPdcCache {
+
+    private final Map<UUID, Entry> entries = new LinkedHashMap<UUID, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<UUID, Entry> eldest) {
+            return size() > maxSize || isExpired(eldest.getValue(), System.nanoTime());
+        }
+    };
+    private final int maxSize;
+    private final long expireAfterNanos;
+
+    /**
+     * @param maxSize          maximum amount of cached players
+     * @param expireAfterNanos time after which an entry is loaded again, or 0 to never expire entries
+     */
+    public OfflinePlayerPdcCache(final int maxSize, final long expireAfterNanos) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1");
+        this.maxSize = maxSize;
+        this.expireAfterNanos = expireAfterNanos;
+    }
+
+    /**
+     * Returns the cached container of the given player, or starts loading it using the given loader
+     */
+    @NotNull
+    public synchronized CompletableFuture<OfflinePlayerPersistentDataContainer> get(@NotNull final UUID uuid, @NotNull final Function<UUID, CompletableFuture<OfflinePlayerPersistentDataContainer>> loader) {
+        final long now = System.nanoTime();
+        final Entry existing = entries.get(uuid);
+        if (existing != null && !isExpired(existing, now) && !existing.future.isCompletedExceptionally()) {
+            return existing.future;
+        }
+        final Entry entry = new Entry(loader.apply(uuid), now);
+        entries.put(uuid, entry);
+        entry.future.whenComplete((pdc, throwable) -> {
+            if (throwable != null) remove(uuid, entry);
+        });
+        return entry.future;
+    }
+
+    /**
+     * Removes the given player from the cache
+     */
+    public synchronized void invalidate(@NotNull final UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    /**
+     * Removes all players from the cache
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the amount of cached players, including entries that are still loading and expired entries that haven't
+     * been dropped yet
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void remove(final UUID uuid, final Entry entry) {
+        if (entries.get(uuid) == entry) {
+            entries.remove(uuid);
+        }
+    }
+
+    private boolean isExpired(final Entry entry, final long now) {
+        return expireAfterNanos > 0 && now - entry.createdAt >= expireAfterNanos;
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<OfflinePlayerPersistentDataContainer> future;
+        private final long createdAt;
+
+        private Entry(final CompletableFuture<OfflinePlayerPersistentDataContainer> future, final long createdAt) {
+            this.future = future;
+            this.createdAt = createdAt;
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.pdc;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.data.OfflinePlayerPersistentDataContainer;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Write-behind queue for {@link OfflinePlayerPersistentDataContainer}s. Saves are written one after another on a single
+ * thread, and saving the same player again while the previous save is still waiting only writes the newest data once.
+ * {@link #saveNow(OfflinePlayerPersistentDataContainer)} writes on the calling thread instead and only waits for other
+ * writes of the same player. Files are written to a synced temporary file first and then moved over the original file,
+ * so that a crash never leaves a half written player file behind.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class OfflinePlayerSaveQueue {
+
+    private static final String TEMP_SUFFIX = ".jefflib-tmp";
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "JeffLib-OfflinePlayerSaveQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<UUID, PendingSave> PENDING = new ConcurrentHashMap<>();
+    private static final Map<UUID, PlayerLock> LOCKS = new ConcurrentHashMap<>();
+
+    private OfflinePlayerSaveQueue() {
+    }
+
+    /**
+     * Queues the given PDC to be saved. If a save for the same player is still waiting, it will save this PDC instead
+     * and the same future is returned.
+     *
+     * @return future that completes once the data has been written. It completes exceptionally with an {@link IllegalStateException} if the player is online.
+     */
+    @NotNull
+    public static CompletableFuture<Void> save(@NotNull final OfflinePlayerPersistentDataContainer pdc) {
+        final UUID uuid = pdc.getUniqueId();
+        if (isOnline(uuid)) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(onlineException(uuid));
+            return future;
+        }
+        final PendingSave[] created = new PendingSave[1];
+        final PendingSave pending = PENDING.compute(uuid, (key, existing) -> {
+            if (existing != null) {
+                existing.pdc = pdc;
+                return existing;
+            }
+            return created[0] = new PendingSave(pdc);
+        });
+        if (created[0] != null) {
+            EXECUTOR.execute(() -> write(uuid, created[0]));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Writes the given PDC on the calling thread. A queued save of the same player is written by this call instead, and
+     * its future completes once this call has finished.
+     *
+     * @throws IllegalStateException if the player is online
+     */
+    public static void saveNow(@NotNull final OfflinePlayerPersistentDataContainer pdc) throws IOException {
+        final UUID uuid = pdc.getUniqueId();
+        if (isOnline(uuid)) {
+            throw onlineException(uuid);
+        }
+        final PlayerLock lock = lock(uuid);
+        try {
+            final PendingSave pending = PENDING.remove(uuid);
+            try {
+                writeFile(pdc);
+            } catch (final IOException | RuntimeException ex) {
+                if (pending != null) pending.future.completeExceptionally(ex);
+                throw ex;
+            }
+            if (pending != null) pending.future.complete(null);
+        } finally {
+            unlock(uuid, lock);
+        }
+    }
+
+    /**
+     * Returns a future that completes once all saves queued so far have been written
+     */
+    @NotNull
+    public static CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(() -> {
+        }, EXECUTOR);
+    }
+
+    /**
+     * Returns the amount of players whose data is waiting to be saved
+     */
+    public static int getPendingCount() {
+        return PENDING.size();
+    }
+
+    private static void write(final UUID uuid, final PendingSave pending) {
+        final PlayerLock lock = lock(uuid);
+        try {
+            // Saves queued from now on get their own task, which runs after this one. If the save isn't pending anymore,
+            // it has already been written by saveNow.
+            if (!PENDING.remove(uuid, pending)) return;
+            if (isOnline(uuid)) {
+                throw onlineException(uuid);
+            }
+            writeFile(pending.pdc);
+            pending.future.complete(null);
+        } catch (final Throwable throwable) {
+            pending.future.completeExceptionally(throwable);
+        } finally {
+            unlock(uuid, lock);
+        }
+    }
+
+    private static void writeFile(final OfflinePlayerPersistentDataContainer pdc) throws IOException {
+        final File file = pdc.getFile();
+        final File tempFile = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+        JeffLib.getNMSHandler().updatePdcInDatFile(pdc, tempFile);
+        try (final FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+            // Make sure the data is on disk before the rename becomes visible
+            channel.force(true);
+        }
+        moveAtomically(tempFile, file);
+    }
+
+    /**
+     * Acquires the lock of the given player. Locks only exist while someone holds or waits for them.
+     */
+    private static PlayerLock lock(final UUID uuid) {
+        final PlayerLock lock = LOCKS.compute(uuid, (key, existing) -> {
+            final PlayerLock result = existing == null ? new PlayerLock() : existing;
+            result.users++;
+            return result;
+        });
+        lock.lock.lock();
+        return lock;
+    }
+
+    private static void unlock(final UUID uuid, final PlayerLock lock) {
+        lock.lock.unlock();
+        LOCKS.computeIfPresent(uuid, (key, existing) -> --existing.users == 0 ? null : existing);
+    }
+
+    private static void moveAtomically(final File source, final File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException ex) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isOnline(final UUID uuid) {
+        return Bukkit.getPlayer(uuid) != null;
+    }
+
+    private static IllegalStateException onlineException(final UUID uuid) {
+        return new IllegalStateException("Player " + uuid + " is online, their data file is managed by the server");
+    }
+
+    private static final class PlayerLock {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Only accessed inside LOCKS.compute
+        private int users;
+    }
+
+    private static final class PendingSave {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile OfflinePlayerPersistentDataContainer pdc;
+
+        private PendingSave(final OfflinePlayerPersistentDataContainer pdc) {
+            this.pdc = pdc;
+        }
+    }
+
+}
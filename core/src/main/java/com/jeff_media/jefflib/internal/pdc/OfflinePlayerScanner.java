@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.pdc;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.PDCUtils;
+import com.jeff_media.jefflib.data.OfflinePlayerScanResult;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.nbt.PlayerDataReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads the PDCs of all player data files inside a folder in parallel. Every file is decompressed once and only the
+ * "BukkitValues" entries matching the key filter are turned into a PersistentDataContainer.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class OfflinePlayerScanner {
+
+    private final File[] files;
+    private final Predicate<NamespacedKey> keyFilter;
+    private final BiConsumer<UUID, PersistentDataContainer> consumer;
+    private final AtomicInteger nextFile = new AtomicInteger();
+    private final AtomicInteger scannedFiles = new AtomicInteger();
+    private final AtomicInteger matchedPlayers = new AtomicInteger();
+    private final LongAdder bytesRead = new LongAdder();
+    private final Map<UUID, Exception> errors = new ConcurrentHashMap<>();
+
+    public OfflinePlayerScanner(@NotNull final File folder, @NotNull final Predicate<NamespacedKey> keyFilter, @NotNull final BiConsumer<UUID, PersistentDataContainer> consumer) {
+        final File[] files = folder.listFiles((dir, name) -> name.endsWith(".dat") && name.length() == 36 + 4);
+        this.files = files == null ? new File[0] : files;
+        this.keyFilter = keyFilter;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Starts scanning using the given amount of tasks on the given executor
+     */
+    @NotNull
+    public CompletableFuture<OfflinePlayerScanResult> run(@NotNull final Executor executor, final int parallelism) {
+        final long start = System.nanoTime();
+        final CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.max(1, Math.min(parallelism, files.length))];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(this::work, executor);
+        }
+        return CompletableFuture.allOf(workers).thenApply(__ ->
+                new OfflinePlayerScanResult(scannedFiles.get(), matchedPlayers.get(), bytesRead.sum(), System.nanoTime() - start, errors));
+    }
+
+    private void work() {
+        int index;
+        while ((index = nextFile.getAndIncrement()) < files.length) {
+            scan(files[index]);
+        }
+    }
+
+    private boolean matches(final String name) {
+        final int separator = name.indexOf(':');
+        if (separator < 0) return false;
+        final NamespacedKey key = PDCUtils.getKeyFromString(name.substring(0, separator), name.substring(separator + 1));
+        return key != null && keyFilter.test(key);
+    }
+
+    private void scan(final File file) {
+        final UUID uuid;
+        try {
+            uuid = UUID.fromString(file.getName().substring(0, 36));
+        } catch (final IllegalArgumentException ex) {
+            return;
+        }
+        scannedFiles.incrementAndGet();
+        bytesRead.add(file.length());
+        try {
+            final byte[] bukkitValues = PlayerDataReader.readBukkitValues(file, this::matches);
+            if (bukkitValues == null) return;
+            final PersistentDataContainer pdc = PDCUtils.createPersistentDataContainer();
+            JeffLib.getNMSHandler().readPdc(new DataInputStream(new ByteArrayInputStream(bukkitValues)), pdc);
+            matchedPlayers.incrementAndGet();
+            consumer.accept(uuid, pdc);
+        } catch (final Exception ex) {
+            errors.put(uuid, ex);
+        }
+    }
+
+}
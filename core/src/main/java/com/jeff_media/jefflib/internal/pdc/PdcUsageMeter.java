@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.pdc;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.PDCUtils;
+import com.jeff_media.jefflib.data.McVersion;
+import com.jeff_media.jefflib.data.PdcUsage;
+import com.jeff_media.jefflib.data.PdcWorldUsage;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.blocktracker.ChunkMap;
+import com.jeff_media.jefflib.internal.nbt.NbtReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.TileState;
+import org.bukkit.entity.Entity;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Measures the serialized size of PersistentDataContainer entries. Containers are written to binary NBT through the
+ * NMS handler and then walked entry by entry.
+ *
+ * @internal For internal use only
+ */
+@Internal
+public final class PdcUsageMeter {
+
+    private static final int CHUNK = 0;
+    private static final int ENTITY = 1;
+    private static final int TILE_ENTITY = 2;
+
+    private PdcUsageMeter() {
+    }
+
+    /**
+     * Writes the given container to binary NBT, or returns null if it's empty
+     */
+    @Nullable
+    public static byte[] snapshot(@NotNull final PersistentDataContainer pdc) {
+        if (pdc.isEmpty()) return null;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            JeffLib.getNMSHandler().writePdc(pdc, new DataOutputStream(bytes));
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Adds the sizes of all entries of a container written by {@link #snapshot(PersistentDataContainer)} to the given usage
+     *
+     * @return the total size of all entries in bytes
+     */
+    public static long measure(@NotNull final byte[] nbt, @NotNull final PdcUsage usage) throws IOException {
+        final ByteArrayInputStream bytes = new ByteArrayInputStream(nbt);
+        final NbtReader reader = new NbtReader(new DataInputStream(bytes));
+        if (reader.readRoot() != NbtReader.TAG_COMPOUND) {
+            throw new IOException("PDC isn't a compound tag");
+        }
+        long total = 0;
+        int remaining = bytes.available();
+        int type;
+        while ((type = reader.nextEntry()) != NbtReader.TAG_END) {
+            reader.skip(type);
+            final int size = remaining - bytes.available();
+            remaining = bytes.available();
+            final String name = reader.getName();
+            final int separator = name.indexOf(':');
+            final NamespacedKey key = separator < 0 ? null : PDCUtils.getKeyFromString(name.substring(0, separator), name.substring(separator + 1));
+            if (key == null) continue;
+            usage.add(key, size);
+            total += size;
+        }
+        usage.addContainer();
+        return total;
+    }
+
+    /**
+     * Snapshots the PDCs of all loaded chunks, entities and tile entities on the main thread and measures them asynchronously
+     */
+    @NotNull
+    public static CompletableFuture<PdcWorldUsage> report(@NotNull final World world) {
+        final CompletableFuture<List<Snapshot>> snapshots = new CompletableFuture<>();
+        final int[] scannedChunks = new int[1];
+        final Runnable snapshotTask = () -> {
+            try {
+                final Chunk[] chunks = world.getLoadedChunks();
+                scannedChunks[0] = chunks.length;
+                snapshots.complete(snapshot(chunks));
+            } catch (final Throwable t) {
+                snapshots.completeExceptionally(t);
+            }
+        };
+        if (Bukkit.isPrimaryThread()) {
+            snapshotTask.run();
+        } else {
+            Bukkit.getScheduler().runTask(JeffLib.getPlugin(), snapshotTask);
+        }
+        return snapshots.thenApplyAsync(list -> {
+            final PdcUsage[] usages = {new PdcUsage(), new PdcUsage(), new PdcUsage()};
+            final Map<Long, Long> bytesPerChunk = new HashMap<>();
+            for (final Snapshot snapshot : list) {
+                try {
+                    final long bytes = measure(snapshot.nbt, usages[snapshot.kind]);
+                    bytesPerChunk.merge(snapshot.chunkKey, bytes, Long::sum);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return new PdcWorldUsage(world, scannedChunks[0], usages[CHUNK], usages[ENTITY], usages[TILE_ENTITY], bytesPerChunk);
+        });
+    }
+
+    private static List<Snapshot> snapshot(final Chunk[] chunks) {
+        final boolean chunkPdc = McVersion.current().isAtLeast(1, 16, 3);
+        final List<Snapshot> snapshots = new ArrayList<>();
+        for (final Chunk chunk : chunks) {
+            final long chunkKey = ChunkMap.getKey(chunk.getX(), chunk.getZ());
+            if (chunkPdc) {
+                add(snapshots, chunkKey, CHUNK, chunk.getPersistentDataContainer());
+            }
+            for (final Entity entity : chunk.getEntities()) {
+                add(snapshots, chunkKey, ENTITY, entity.getPersistentDataContainer());
+            }
+            for (final BlockState state : chunk.getTileEntities()) {
+                if (state instanceof TileState) {
+                    add(snapshots, chunkKey, TILE_ENTITY, ((TileState) state).getPersistentDataContainer());
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    private static void add(final List<Snapshot> snapshots, final long chunkKey, final int kind, final PersistentDataContainer pdc) {
+        final byte[] nbt = snapshot(pdc);
+        if (nbt != null) {
+            snapshots.add(new Snapshot(chunkKey, kind, nbt));
+        }
+    }
+
+    private static final class Snapshot {
+        private final long chunkKey;
+        private final int kind;
+        private final byte[] nbt;
+
+        private Snapshot(final long chunkKey, final int kind, final byte[] nbt) {
+            this.chunkKey = chunkKey;
+            this.kind = kind;
+            this.nbt = nbt;
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.internal.blocktracker.ChunkTrackingData;
+import com.jeff_media.jefflib.internal.blocktracker.TrackingDataCodec;
+import java.nio.ByteBuffer;
+import java.util.PrimitiveIterator;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestBlockTrackerCodec {
+
+    @Test
+    public void testRoundTrip() {
+        ChunkTrackingData data = new ChunkTrackingData();
+        data.set(0, -64, 0, true);
+        data.set(15, 319, 15, true);
+        data.set(3, 70, 9, true);
+        Assertions.assertEquals(3, data.count());
+
+        ChunkTrackingData decoded = new ChunkTrackingData();
+        TrackingDataCodec.decode(TrackingDataCodec.encode(data), decoded);
+        Assertions.assertEquals(3, decoded.count());
+        Assertions.assertTrue(decoded.get(0, -64, 0));
+        Assertions.assertTrue(decoded.get(15, 319, 15));
+        Assertions.assertTrue(decoded.get(3, 70, 9));
+        Assertions.assertFalse(decoded.get(3, 71, 9));
+    }
+
+    @Test
+    public void testEmptySectionsAreSkipped() {
+        ChunkTrackingData data = new ChunkTrackingData();
+        data.set(1, 1, 1, true);
+        data.set(1, 1, 1, false);
+        Assertions.assertTrue(data.isEmpty());
+        Assertions.assertEquals(1, TrackingDataCodec.encode(data).length);
+    }
+
+    @Test
+    public void testPackedIteration() {
+        ChunkTrackingData data = new ChunkTrackingData();
+        data.set(4, -10, 7, true);
+        PrimitiveIterator.OfLong iterator = data.iterator(-32, 48);
+        Assertions.assertTrue(iterator.hasNext());
+        long packed = iterator.nextLong();
+        Assertions.assertEquals(-28, ChunkTrackingData.unpackX(packed));
+        Assertions.assertEquals(-10, ChunkTrackingData.unpackY(packed));
+        Assertions.assertEquals(55, ChunkTrackingData.unpackZ(packed));
+        Assertions.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testPlacerRoundTrip() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        ChunkTrackingData data = new ChunkTrackingData();
+        data.set(0, -64, 0, true);
+        data.setPlacer(0, -64, 0, first, 1000L);
+        data.set(5, 100, 5, true);
+        data.setPlacer(5, 100, 5, second, 500L);
+        data.set(6, 100, 5, true);
+        data.setPlacer(6, 100, 5, first, 2000L);
+        data.set(5, 100, 5, false);
+
+        ChunkTrackingData decoded = new ChunkTrackingData();
+        TrackingDataCodec.decode(TrackingDataCodec.encode(data), decoded);
+        Assertions.assertEquals(2, decoded.count());
+        Assertions.assertEquals(first, decoded.getPlacer(0, -64, 0));
+        Assertions.assertEquals(1000L, decoded.getPlacedAt(0, -64, 0));
+        Assertions.assertEquals(first, decoded.getPlacer(6, 100, 5));
+        Assertions.assertEquals(2000L, decoded.getPlacedAt(6, 100, 5));
+        Assertions.assertNull(decoded.getPlacer(5, 100, 5));
+        Assertions.assertEquals(1, decoded.getPlacers().getDictionary().size());
+    }
+
+    @Test
+    public void testRunLengthEncoding() {
+        ChunkTrackingData data = new ChunkTrackingData();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                data.set(x, 64, z, true);
+            }
+        }
+        byte[] encoded = TrackingDataCodec.encode(data);
+        Assertions.assertTrue(encoded.length < 64 * Long.BYTES);
+
+        ChunkTrackingData decoded = new ChunkTrackingData();
+        TrackingDataCodec.decode(encoded, decoded);
+        Assertions.assertEquals(256, decoded.count());
+        Assertions.assertTrue(decoded.get(15, 64, 15));
+        Assertions.assertFalse(decoded.get(0, 65, 0));
+    }
+
+    @Test
+    public void testDecodeVersion1Fixture() {
+        // Version byte, then section Y and 64 raw longs per section, no section count
+        long[] bottom = new long[ChunkTrackingData.SECTION_LONGS];
+        bottom[0] = 1L; // 0, -64, 0
+        long[] middle = new long[ChunkTrackingData.SECTION_LONGS];
+        middle[26] = 1L << 19; // 3, 70, 9
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 * (1 + ChunkTrackingData.SECTION_LONGS * Long.BYTES));
+        buffer.put(TrackingDataCodec.VERSION_RAW);
+        putRawSection(buffer, -4, bottom);
+        putRawSection(buffer, 4, middle);
+
+        ChunkTrackingData decoded = new ChunkTrackingData();
+        TrackingDataCodec.decode(buffer.array(), decoded);
+        Assertions.assertEquals(2, decoded.count());
+        Assertions.assertArrayEquals(bottom, decoded.getSection(-4));
+        Assertions.assertArrayEquals(middle, decoded.getSection(4));
+        Assertions.assertTrue(decoded.get(0, -64, 0));
+        Assertions.assertTrue(decoded.get(3, 70, 9));
+        Assertions.assertNull(decoded.getPlacers());
+    }
+
+    @Test
+    public void testDecodeVersion2Fixture() {
+        // Version byte, varint section count, raw sections, then the placer dictionary and entries
+        UUID placer = new UUID(0x0123456789ABCDEFL, 0xFEDCBA9876543210L);
+        long[] section = new long[ChunkTrackingData.SECTION_LONGS];
+        section[13] = 1L << 53; // 5, 3, 7
+        ByteBuffer buffer = ByteBuffer.allocate(64 + ChunkTrackingData.SECTION_LONGS * Long.BYTES);
+        buffer.put(TrackingDataCodec.VERSION_PLACERS);
+        buffer.put((byte) 1);
+        putRawSection(buffer, 0, section);
+        buffer.put((byte) 1);
+        buffer.putLong(placer.getMostSignificantBits());
+        buffer.putLong(placer.getLeastSignificantBits());
+        buffer.put((byte) 1);
+        buffer.put((byte) 0xEA).put((byte) 0x0D); // zigzag(885)
+        buffer.put((byte) 0);
+        buffer.put((byte) 0xA4).put((byte) 0x13); // zigzag(1234)
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+
+        ChunkTrackingData decoded = new ChunkTrackingData();
+        TrackingDataCodec.decode(bytes, decoded);
+        Assertions.assertEquals(1, decoded.count());
+        Assertions.assertArrayEquals(section, decoded.getSection(0));
+        Assertions.assertEquals(placer, decoded.getPlacer(5, 3, 7));
+        Assertions.assertEquals(1234L, decoded.getPlacedAt(5, 3, 7));
+    }
+
+    @Test
+    public void testFallbackToRawSection() {
+        ChunkTrackingData data = new ChunkTrackingData();
+        for (int x = 0; x < 16; x += 2) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    data.set(x, y, z, true);
+                }
+            }
+        }
+        byte[] encoded = TrackingDataCodec.encode(data);
+        // Version, section count, section Y, encoding and the raw longs
+        Assertions.assertEquals(4 + ChunkTrackingData.SECTION_LONGS * Long.BYTES, encoded.length);
+        Assertions.assertEquals(TrackingDataCodec.SECTION_RAW, encoded[3]);
+
+        ChunkTrackingData decoded = new ChunkTrackingData();
+        TrackingDataCodec.decode(encoded, decoded);
+        Assertions.assertArrayEquals(data.getSection(0), decoded.getSection(0));
+        Assertions.assertEquals(2048, decoded.count());
+    }
+
+    private static void putRawSection(ByteBuffer buffer, int sectionY, long[] section) {
+        buffer.put((byte) sectionY);
+        for (long word : section) {
+            buffer.putLong(word);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.MockUnsafeValues;
+import be.seeseemelk.mockbukkit.ServerMock;
+import com.jeff_media.jefflib.ItemStackSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestItemStackSerializer {
+
+    private ServerMock server;
+
+    @BeforeEach
+    void setup() {
+        // The inventory format stores the data version, which the default mock doesn't provide
+        server = MockBukkit.mock(new ServerMock() {
+            private final MockUnsafeValues unsafe = new MockUnsafeValues() {
+                @Override
+                public int getDataVersion() {
+                    return 3337;
+                }
+            };
+
+            @NotNull
+            @Override
+            public MockUnsafeValues getUnsafe() {
+                return unsafe;
+            }
+        });
+    }
+
+    @AfterEach
+    void destroy() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    public void testFailingInventoryIsIsolated() {
+        Inventory broken = (Inventory) Proxy.newProxyInstance(Inventory.class.getClassLoader(), new Class<?>[] {Inventory.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getContents")) throw new IllegalStateException("broken");
+            return null;
+        });
+        Map<String, Inventory> inventories = new LinkedHashMap<>();
+        inventories.put("first", server.createInventory(null, 9));
+        inventories.put("broken", broken);
+        inventories.put("second", server.createInventory(null, 18));
+
+        Map<String, Throwable> errors = new HashMap<>();
+        Map<String, byte[]> result = ItemStackSerializer.serializeInventoriesAsync(inventories, Runnable::run, errors::put).join();
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertTrue(result.containsKey("first"));
+        Assertions.assertTrue(result.containsKey("second"));
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertTrue(errors.get("broken") instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testRejectedInventoryIsIsolated() {
+        Map<String, Inventory> inventories = new LinkedHashMap<>();
+        inventories.put("first", server.createInventory(null, 9));
+        inventories.put("rejected", server.createInventory(null, 9));
+        inventories.put("second", server.createInventory(null, 9));
+        int[] submitted = new int[1];
+        Executor executor = task -> {
+            if (submitted[0]++ == 1) throw new RejectedExecutionException("full");
+            task.run();
+        };
+
+        Map<String, Throwable> errors = new HashMap<>();
+        Map<String, byte[]> result = ItemStackSerializer.serializeInventoriesAsync(inventories, executor, errors::put).join();
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertTrue(result.containsKey("first"));
+        Assertions.assertTrue(result.containsKey("second"));
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertTrue(errors.get("rejected") instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testReadInventoryRoundsUpSize() throws IOException {
+        Assertions.assertEquals(45, ItemStackSerializer.readInventory(new ByteArrayInputStream(writeEmptyItems(41))).getSize());
+        Assertions.assertEquals(27, ItemStackSerializer.readInventory(new ByteArrayInputStream(writeEmptyItems(27))).getSize());
+        Assertions.assertEquals(9, ItemStackSerializer.readInventory(new ByteArrayInputStream(writeEmptyItems(0))).getSize());
+        Assertions.assertThrows(IOException.class, () -> ItemStackSerializer.readInventory(new ByteArrayInputStream(writeEmptyItems(55))));
+    }
+
+    private static byte[] writeEmptyItems(int size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ItemStackSerializer.writeItems(new ItemStack[size], bytes);
+        return bytes.toByteArray();
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.internal.nbt.McaRegionFile;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.zip.DeflaterOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestMcaRegionFile {
+
+    @Test
+    public void testExternalChunk() throws IOException {
+        File directory = Files.createTempDirectory("region").toFile();
+        directory.deleteOnExit();
+        File regionFile = new File(directory, "r.-1.2.mca");
+        regionFile.deleteOnExit();
+        int index = McaRegionFile.getIndex(-31, 65);
+        try (RandomAccessFile out = new RandomAccessFile(regionFile, "rw")) {
+            out.setLength(3 * 4096);
+            out.seek(index * 4L);
+            out.writeInt(2 << 8 | 1);
+            out.seek(2 * 4096);
+            out.writeInt(1);
+            out.writeByte(0x80 | 2);
+        }
+
+        try (McaRegionFile region = new McaRegionFile(regionFile)) {
+            File external = region.getExternalFile(index);
+            Assertions.assertEquals("c.-31.65.mcc", external.getName());
+            Assertions.assertThrows(NoSuchFileException.class, () -> region.openChunk(index));
+
+            external.deleteOnExit();
+            try (DeflaterOutputStream out = new DeflaterOutputStream(new FileOutputStream(external))) {
+                out.write(new byte[] {1, 2, 3});
+            }
+            try (DataInputStream in = region.openChunk(index)) {
+                Assertions.assertNotNull(in);
+                Assertions.assertEquals(0x010203, in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte());
+            }
+        }
+    }
+
+}
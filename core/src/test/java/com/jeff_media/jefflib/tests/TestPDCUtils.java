@@ -19,8 +19,28 @@ package com.jeff_media.jefflib.tests;
 
 import com.jeff_media.jefflib.PDCUtils;
 import com.jeff_media.jefflib.UnitTest;
+import com.jeff_media.jefflib.data.ChunkAmount;
+import com.jeff_media.jefflib.data.OfflinePlayerPersistentDataContainer;
+import com.jeff_media.jefflib.data.PdcPatch;
+import com.jeff_media.jefflib.data.PdcSchema;
+import com.jeff_media.jefflib.data.PdcUsage;
+import com.jeff_media.jefflib.data.PdcWorldUsage;
+import com.jeff_media.jefflib.internal.NamespacedKeyCache;
+import com.jeff_media.jefflib.internal.blocktracker.ChunkMap;
+import com.jeff_media.jefflib.internal.pdc.OfflinePlayerPdcCache;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -37,4 +57,231 @@ public class TestPDCUtils extends UnitTest {
         PDCUtils.copy(player.getPersistentDataContainer(), player2.getPersistentDataContainer());
         Assertions.assertEquals("test", PDCUtils.get(player2, key, PersistentDataType.STRING));
     }
+
+    @Test
+    public void testKeyCache() {
+        long hits = PDCUtils.getKeyCacheHits();
+        NamespacedKey key = PDCUtils.getKey("cached");
+        Assertions.assertEquals(new NamespacedKey(getPlugin(), "cached"), key);
+        Assertions.assertSame(key, PDCUtils.getKey("cached"));
+        Assertions.assertSame(PDCUtils.getKeyFromString("other", "cached"), PDCUtils.getKeyFromString("other", "cached"));
+        Assertions.assertEquals(hits + 2, PDCUtils.getKeyCacheHits());
+    }
+
+    @Test
+    public void testKeyCacheEvictsUnusedKeys() {
+        NamespacedKeyCache cache = new NamespacedKeyCache(2);
+        NamespacedKey first = cache.get("test", "first", NamespacedKey::new);
+        cache.get("test", "second", NamespacedKey::new);
+        Assertions.assertSame(first, cache.get("test", "first", NamespacedKey::new));
+        cache.get("test", "third", NamespacedKey::new);
+        Assertions.assertEquals(2, cache.size());
+        // The used key gets a second chance, one of the unused ones is evicted
+        Assertions.assertSame(first, cache.get("test", "first", NamespacedKey::new));
+        Assertions.assertEquals(2, cache.getHits());
+        cache.get("other", "first", NamespacedKey::new);
+        Assertions.assertEquals(2, cache.size());
+        cache.setMaxSize(1);
+        Assertions.assertEquals(1, cache.size());
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEditClonesMetaOnce() {
+        int[] metaClones = {0};
+        ItemStack item = new ItemStack(Material.DIAMOND) {
+            @Override
+            public ItemMeta getItemMeta() {
+                metaClones[0]++;
+                return super.getItemMeta();
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            PDCUtils.set(item, "key" + i, PersistentDataType.INTEGER, i);
+        }
+        Assertions.assertEquals(10, metaClones[0]);
+
+        metaClones[0] = 0;
+        PDCUtils.edit(item, pdc -> {
+            for (int i = 0; i < 10; i++) {
+                pdc.set(PDCUtils.getKey("key" + i), PersistentDataType.INTEGER, i * 2);
+            }
+        });
+        PersistentDataContainer view = PDCUtils.view(item);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(i * 2, view.get(PDCUtils.getKey("key" + i), PersistentDataType.INTEGER));
+        }
+        Assertions.assertEquals(2, metaClones[0]);
+    }
+
+    @Test
+    public void testOfflinePlayerPdcCache() {
+        OfflinePlayerPdcCache cache = new OfflinePlayerPdcCache(2, 0);
+        int[] loads = {0};
+        Function<UUID, CompletableFuture<OfflinePlayerPersistentDataContainer>> loader = uuid -> {
+            loads[0]++;
+            return new CompletableFuture<>();
+        };
+        UUID first = UUID.randomUUID();
+        CompletableFuture<OfflinePlayerPersistentDataContainer> pending = cache.get(first, loader);
+        Assertions.assertSame(pending, cache.get(first, loader));
+        cache.get(UUID.randomUUID(), loader);
+        cache.get(first, loader);
+        cache.get(UUID.randomUUID(), loader);
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertSame(pending, cache.get(first, loader));
+        Assertions.assertEquals(3, loads[0]);
+        pending.completeExceptionally(new IOException());
+        Assertions.assertEquals(1, cache.size());
+        cache.invalidateAll();
+        Assertions.assertEquals(0, cache.size());
+
+        OfflinePlayerPdcCache expiring = new OfflinePlayerPdcCache(10, 1);
+        CompletableFuture<OfflinePlayerPersistentDataContainer> expired = expiring.get(first, loader);
+        Assertions.assertNotSame(expired, expiring.get(first, loader));
+        Assertions.assertEquals(5, loads[0]);
+        expiring.get(UUID.randomUUID(), loader);
+        Assertions.assertEquals(1, expiring.size());
+    }
+
+    public static class QuestProgress {
+        private int stage;
+        private String name;
+
+        public int getStage() {
+            return stage;
+        }
+
+        public void setStage(int stage) {
+            this.stage = stage;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Test
+    public void testSchema() {
+        PdcSchema<QuestProgress> schema = PDCUtils.schema(QuestProgress.class, QuestProgress::new)
+                .version(2)
+                .field("stage", PersistentDataType.INTEGER, QuestProgress::getStage, QuestProgress::setStage)
+                .field("name", PersistentDataType.STRING, QuestProgress::getName, QuestProgress::setName)
+                .migrate(1, pdc -> pdc.set(PDCUtils.getKey("name"), PersistentDataType.STRING, "migrated"))
+                .build();
+        Player player = getServer().addPlayer("schema");
+        PersistentDataContainer pdc = player.getPersistentDataContainer();
+
+        QuestProgress progress = new QuestProgress();
+        progress.setStage(3);
+        progress.setName("test");
+        pdc.set(PDCUtils.getKey("quest"), schema, progress);
+        QuestProgress read = pdc.get(PDCUtils.getKey("quest"), schema);
+        Assertions.assertEquals(3, read.getStage());
+        Assertions.assertEquals("test", read.getName());
+
+        pdc.set(PDCUtils.getKey("stage"), PersistentDataType.INTEGER, 5);
+        read = schema.read(pdc);
+        Assertions.assertEquals(5, read.getStage());
+        Assertions.assertEquals("migrated", read.getName());
+        Assertions.assertFalse(pdc.has(PDCUtils.getKey("name"), PersistentDataType.STRING));
+        Assertions.assertFalse(pdc.has(PdcSchema.DEFAULT_VERSION_KEY, PersistentDataType.INTEGER));
+
+        Assertions.assertTrue(schema.migrate(pdc));
+        Assertions.assertEquals("migrated", pdc.get(PDCUtils.getKey("name"), PersistentDataType.STRING));
+        Assertions.assertEquals(2, pdc.get(PdcSchema.DEFAULT_VERSION_KEY, PersistentDataType.INTEGER));
+        Assertions.assertFalse(schema.migrate(pdc));
+    }
+
+    @Test
+    public void testSchemaReadsEmptyContainerWithoutChanges() {
+        PdcSchema<QuestProgress> schema = PDCUtils.schema(QuestProgress.class, QuestProgress::new)
+                .version(2)
+                .field("stage", PersistentDataType.INTEGER, QuestProgress::getStage, QuestProgress::setStage)
+                .migrate(1, pdc -> pdc.set(PDCUtils.getKey("stage"), PersistentDataType.INTEGER, 1))
+                .build();
+        PersistentDataContainer pdc = getServer().addPlayer("empty").getPersistentDataContainer();
+
+        QuestProgress read = schema.read(pdc);
+        Assertions.assertEquals(new QuestProgress().getStage(), read.getStage());
+        Assertions.assertTrue(pdc.isEmpty());
+        Assertions.assertFalse(schema.migrate(pdc));
+        Assertions.assertTrue(pdc.isEmpty());
+    }
+
+    @Test
+    public void testDiffAndApply() {
+        PersistentDataContainer from = getServer().addPlayer("from").getPersistentDataContainer();
+        PersistentDataContainer to = getServer().addPlayer("to").getPersistentDataContainer();
+        from.set(PDCUtils.getKey("same"), PersistentDataType.INTEGER, 1);
+        from.set(PDCUtils.getKey("changed"), PersistentDataType.STRING, "old");
+        from.set(PDCUtils.getKey("removed"), PersistentDataType.LONG_ARRAY, new long[] {1, 2});
+        PersistentDataContainer nested = from.getAdapterContext().newPersistentDataContainer();
+        nested.set(PDCUtils.getKey("inner"), PersistentDataType.INTEGER, 1);
+        nested.set(PDCUtils.getKey("array"), PersistentDataType.BYTE_ARRAY, new byte[] {1, 2, 3});
+        from.set(PDCUtils.getKey("nested"), PersistentDataType.TAG_CONTAINER, nested);
+        PDCUtils.copy(from, to);
+
+        Assertions.assertTrue(PDCUtils.diff(from, to).isEmpty());
+
+        to.set(PDCUtils.getKey("changed"), PersistentDataType.STRING, "new");
+        to.remove(PDCUtils.getKey("removed"));
+        to.set(PDCUtils.getKey("added"), PersistentDataType.DOUBLE, 2.5);
+        PersistentDataContainer changedNested = to.getAdapterContext().newPersistentDataContainer();
+        changedNested.set(PDCUtils.getKey("inner"), PersistentDataType.INTEGER, 2);
+        changedNested.set(PDCUtils.getKey("array"), PersistentDataType.BYTE_ARRAY, new byte[] {1, 2, 3});
+        to.set(PDCUtils.getKey("nested"), PersistentDataType.TAG_CONTAINER, changedNested);
+
+        PdcPatch patch = PDCUtils.diff(from, to);
+        Assertions.assertEquals(2, patch.getSetKeys().size());
+        Assertions.assertEquals(1, patch.getRemovedKeys().size());
+        Assertions.assertEquals(1, patch.getNestedPatches().get(PDCUtils.getKey("nested")).getSetKeys().size());
+
+        PDCUtils.apply(PdcPatch.fromPersistentDataContainer(patch.toPersistentDataContainer(from.getAdapterContext())), from);
+        Assertions.assertTrue(PDCUtils.diff(from, to).isEmpty());
+        Assertions.assertEquals(2, from.get(PDCUtils.getKey("nested"), PersistentDataType.TAG_CONTAINER).get(PDCUtils.getKey("inner"), PersistentDataType.INTEGER));
+    }
+
+    @Test
+    public void testDiffComparesContainerArraysByContent() {
+        PersistentDataContainer from = getServer().addPlayer("arrayFrom").getPersistentDataContainer();
+        PersistentDataContainer to = getServer().addPlayer("arrayTo").getPersistentDataContainer();
+        from.set(PDCUtils.getKey("array"), PersistentDataType.TAG_CONTAINER_ARRAY, createContainers(from, 1, 2));
+        to.set(PDCUtils.getKey("array"), PersistentDataType.TAG_CONTAINER_ARRAY, createContainers(to, 1, 2));
+        Assertions.assertTrue(PDCUtils.diff(from, to).isEmpty());
+
+        to.set(PDCUtils.getKey("array"), PersistentDataType.TAG_CONTAINER_ARRAY, createContainers(to, 1, 3));
+        Assertions.assertEquals(1, PDCUtils.diff(from, to).getSetKeys().size());
+    }
+
+    @Test
+    public void testWorldUsageTopChunks() {
+        Map<Long, Long> bytesPerChunk = new HashMap<>();
+        bytesPerChunk.put(ChunkMap.getKey(3, -2), 10L);
+        bytesPerChunk.put(ChunkMap.getKey(-5, 7), 30L);
+        bytesPerChunk.put(ChunkMap.getKey(0, 0), 20L);
+        PdcWorldUsage usage = new PdcWorldUsage(getServer().addSimpleWorld("usage"), 3, new PdcUsage(), new PdcUsage(), new PdcUsage(), bytesPerChunk);
+
+        List<ChunkAmount> top = usage.getTopChunks(2);
+        Assertions.assertEquals(2, top.size());
+        Assertions.assertEquals(new ChunkAmount(-5, 7, 30), top.get(0));
+        Assertions.assertEquals(new ChunkAmount(0, 0, 20), top.get(1));
+        Assertions.assertEquals(10, usage.getBytes(3, -2));
+        Assertions.assertEquals(0, usage.getBytes(-2, 3));
+    }
+
+    private static PersistentDataContainer[] createContainers(PersistentDataContainer parent, int... values) {
+        PersistentDataContainer[] containers = new PersistentDataContainer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            containers[i] = parent.getAdapterContext().newPersistentDataContainer();
+            containers[i].set(PDCUtils.getKey("value"), PersistentDataType.INTEGER, values[i]);
+        }
+        return containers;
+    }
 }
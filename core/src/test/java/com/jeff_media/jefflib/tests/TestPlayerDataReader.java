@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.internal.nbt.NbtReader;
+import com.jeff_media.jefflib.internal.nbt.PlayerDataReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestPlayerDataReader {
+
+    /**
+     * Writes a player file of roughly 80 KB (uncompressed) with a large inventory and ender chest in front of the BukkitValues
+     */
+    private static File createPlayerFile() throws IOException {
+        File file = File.createTempFile("player", ".dat");
+        file.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)))) {
+            out.writeByte(NbtReader.TAG_COMPOUND);
+            out.writeUTF("");
+            for (String list : new String[] {"Inventory", "EnderItems"}) {
+                out.writeByte(NbtReader.TAG_LIST);
+                out.writeUTF(list);
+                out.writeByte(NbtReader.TAG_COMPOUND);
+                out.writeInt(36);
+                for (int slot = 0; slot < 36; slot++) {
+                    out.writeByte(NbtReader.TAG_BYTE);
+                    out.writeUTF("Slot");
+                    out.writeByte(slot);
+                    out.writeByte(NbtReader.TAG_STRING);
+                    out.writeUTF("id");
+                    out.writeUTF("minecraft:written_book");
+                    out.writeByte(NbtReader.TAG_LIST);
+                    out.writeUTF("pages");
+                    out.writeByte(NbtReader.TAG_STRING);
+                    out.writeInt(20);
+                    for (int page = 0; page < 20; page++) {
+                        out.writeUTF("{\"text\":\"Page " + page + " of the book in slot " + slot + "\"}");
+                    }
+                    out.writeByte(NbtReader.TAG_INT_ARRAY);
+                    out.writeUTF("Data");
+                    out.writeInt(64);
+                    for (int i = 0; i < 64; i++) {
+                        out.writeInt(slot * i);
+                    }
+                    out.writeByte(NbtReader.TAG_END);
+                }
+            }
+            out.writeByte(NbtReader.TAG_COMPOUND);
+            out.writeUTF(PlayerDataReader.BUKKIT_VALUES);
+            out.writeByte(NbtReader.TAG_INT);
+            out.writeUTF("plugin:kills");
+            out.writeInt(42);
+            out.writeByte(NbtReader.TAG_STRING);
+            out.writeUTF("other:name");
+            out.writeUTF("test");
+            out.writeByte(NbtReader.TAG_END);
+            out.writeByte(NbtReader.TAG_END);
+        }
+        return file;
+    }
+
+    @Test
+    public void testReadsOnlyBukkitValues() throws IOException {
+        File file = createPlayerFile();
+        byte[] bukkitValues = PlayerDataReader.readBukkitValues(file, null);
+        Assertions.assertNotNull(bukkitValues);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bukkitValues));
+        Assertions.assertEquals(NbtReader.TAG_COMPOUND, in.readByte());
+        Assertions.assertEquals("", in.readUTF());
+        Assertions.assertEquals(NbtReader.TAG_INT, in.readByte());
+        Assertions.assertEquals("plugin:kills", in.readUTF());
+        Assertions.assertEquals(42, in.readInt());
+        Assertions.assertEquals(NbtReader.TAG_STRING, in.readByte());
+        Assertions.assertEquals("other:name", in.readUTF());
+        Assertions.assertEquals("test", in.readUTF());
+        Assertions.assertEquals(NbtReader.TAG_END, in.readByte());
+        Assertions.assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testKeyFilter() throws IOException {
+        File file = createPlayerFile();
+        byte[] filtered = PlayerDataReader.readBukkitValues(file, key -> key.startsWith("plugin:"));
+        Assertions.assertNotNull(filtered);
+        Assertions.assertEquals(3 + 1 + 2 + "plugin:kills".length() + 4 + 1, filtered.length);
+        Assertions.assertNull(PlayerDataReader.readBukkitValues(file, key -> false));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.UnitTest;
+import com.jeff_media.jefflib.internal.blocktracker.ChunkTrackingData;
+import com.jeff_media.jefflib.internal.blocktracker.RegionFileStorage;
+import com.jeff_media.jefflib.internal.blocktracker.TrackingDataCodec;
+import java.io.IOException;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestRegionFileStorage extends UnitTest {
+
+    @Test
+    public void testWriteReadAndReopen() throws IOException {
+        World world = getServer().addSimpleWorld("regions");
+        Chunk chunk = world.getChunkAt(3, -2);
+        Chunk otherRegion = world.getChunkAt(40, 40);
+        RegionFileStorage storage = new RegionFileStorage(getPlugin(), 1);
+        try {
+            ChunkTrackingData data = new ChunkTrackingData();
+            data.set(1, 64, 2, true);
+            storage.write(chunk, data);
+            // Queued writes are visible before they are written
+            Assertions.assertTrue(storage.read(chunk).get(1, 64, 2));
+            storage.writePending();
+            Assertions.assertTrue(storage.read(chunk).get(1, 64, 2));
+
+            // Opening another region evicts the first one, which has to be opened again
+            Assertions.assertTrue(storage.read(otherRegion).isEmpty());
+            ChunkTrackingData reopened = storage.read(chunk);
+            Assertions.assertEquals(1, reopened.count());
+            Assertions.assertTrue(reopened.get(1, 64, 2));
+            Assertions.assertFalse(reopened.isDirty());
+
+            ChunkTrackingData stored = new ChunkTrackingData();
+            TrackingDataCodec.decode(storage.readStored(world, 3, -2), stored);
+            Assertions.assertTrue(stored.get(1, 64, 2));
+            Assertions.assertNull(storage.readStored(world, 4, -2));
+        } finally {
+            storage.close();
+        }
+    }
+
+}
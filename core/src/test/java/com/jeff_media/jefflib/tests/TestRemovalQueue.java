@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.UnitTest;
+import com.jeff_media.jefflib.internal.blocktracker.RemovalQueue;
+import com.jeff_media.jefflib.internal.listeners.BlockTrackCacheListener;
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestRemovalQueue extends UnitTest {
+
+    @Test
+    public void testDisableDrainsQueue() {
+        World world = getServer().addSimpleWorld("world");
+        List<Block> removed = new ArrayList<>();
+        RemovalQueue queue = new RemovalQueue(getPlugin(), removed::addAll);
+        queue.add(world.getBlockAt(1, 2, 3));
+        queue.add(world.getBlockAt(4, 5, 6));
+        Assertions.assertTrue(removed.isEmpty());
+
+        new BlockTrackCacheListener(() -> null, queue).onDisable(new PluginDisableEvent(getPlugin()));
+        Assertions.assertEquals(2, removed.size());
+        Assertions.assertEquals(1, queue.getFlushes());
+    }
+
+}
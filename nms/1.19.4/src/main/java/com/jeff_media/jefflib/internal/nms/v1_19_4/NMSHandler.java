@@ -49,6 +49,9 @@ import com.jeff_media.jefflib.internal.nms.v1_19_4.ai.HatchedPathNavigation;
 import com.jeff_media.jefflib.internal.nms.v1_19_4.ai.HatchedTemptGoal;
 import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.serialization.Dynamic;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
@@ -60,6 +63,8 @@ import net.minecraft.advancements.critereon.DeserializationContext;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.nbt.Tag;
 import net.minecraft.nbt.TagParser;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.Packet;
@@ -74,6 +79,8 @@ import net.minecraft.server.ServerAdvancementManager;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.util.GsonHelper;
+import net.minecraft.util.datafix.DataFixers;
+import net.minecraft.util.datafix.fixes.References;
 import net.minecraft.world.entity.AreaEffectCloud;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.PathfinderMob;
@@ -95,7 +102,6 @@ import org.bukkit.craftbukkit.v1_19_R3.CraftWorld;
 import org.bukkit.craftbukkit.v1_19_R3.entity.CraftPlayer;
 import org.bukkit.craftbukkit.v1_19_R3.inventory.CraftItemStack;
 import org.bukkit.craftbukkit.v1_19_R3.persistence.CraftPersistentDataContainer;
-import org.bukkit.craftbukkit.v1_19_R3.persistence.CraftPersistentDataTypeRegistry;
 import org.bukkit.craftbukkit.v1_19_R3.util.CraftChatMessage;
 import org.bukkit.craftbukkit.v1_19_R3.util.CraftNamespacedKey;
 import org.bukkit.entity.Creature;
@@ -393,6 +399,39 @@ public class NMSHandler implements AbstractNMSHandler {
         ((CraftPersistentDataContainer) target).putAll(tag);
     }
 
+    @Override
+    public void writePdc(final PersistentDataContainer pdc, final DataOutput output) throws IOException {
+        NbtIo.write(((CraftPersistentDataContainer) pdc).toTagCompound(), output);
+    }
+
+    @Override
+    public void readPdc(final DataInput input, final PersistentDataContainer target) throws IOException {
+        ((CraftPersistentDataContainer) target).putAll(NbtIo.read(input));
+    }
+
+    @Override
+    public int getPdcTagType(final PersistentDataContainer pdc, final NamespacedKey key) {
+        final Tag tag = ((CraftPersistentDataContainer) pdc).getRaw().get(key.toString());
+        return tag == null ? 0 : tag.getId();
+    }
+
+    @Override
+    public void writeItemStack(final org.bukkit.inventory.ItemStack itemStack, final DataOutput output) throws IOException {
+        final CompoundTag tag = new CompoundTag();
+        CraftItemStack.asNMSCopy(itemStack).save(tag);
+        NbtIo.write(tag, output);
+    }
+
+    @Override
+    public org.bukkit.inventory.ItemStack readItemStack(final DataInput input, final int dataVersion) throws IOException {
+        CompoundTag tag = NbtIo.read(input);
+        final int currentVersion = Bukkit.getUnsafe().getDataVersion();
+        if (dataVersion < currentVersion) {
+            tag = (CompoundTag) DataFixers.getDataFixer().update(References.ITEM_STACK, new Dynamic<>(NbtOps.INSTANCE, tag), dataVersion, currentVersion).getValue();
+        }
+        return CraftItemStack.asBukkitCopy(ItemStack.of(tag));
+    }
+
     @Override
     public void respawnPlayer(Player player) {
         getServer().getPlayerList().respawn(toNms(player), true, PlayerRespawnEvent.RespawnReason.PLUGIN);
@@ -417,21 +456,11 @@ public class NMSHandler implements AbstractNMSHandler {
     }
 
     @Override
-    public OfflinePlayerPersistentDataContainer getPDCFromDatFile(File file) throws IOException {
-        CraftPersistentDataTypeRegistry registry = new CraftPersistentDataTypeRegistry();
-        CraftPersistentDataContainer container = new CraftPersistentDataContainer(registry);
-        CompoundTag fileTag = NbtIo.readCompressed(file);
-        CompoundTag pdcTag = fileTag.getCompound("BukkitValues");
-        container.putAll(pdcTag);
-        return new OfflinePlayerPersistentDataContainer(container, file, fileTag);
-    }
-
-    @Override
-    public void updatePdcInDatFile(OfflinePlayerPersistentDataContainer pdc) throws IOException {
+    public void updatePdcInDatFile(OfflinePlayerPersistentDataContainer pdc, File file) throws IOException {
         CompoundTag pdcTag = ((CraftPersistentDataContainer) pdc.getCraftPersistentDataContainer()).toTagCompound();
-        CompoundTag fileTag = (CompoundTag) pdc.getCompoundTag();
+        CompoundTag fileTag = NbtIo.readCompressed(pdc.getFile());
         fileTag.put("BukkitValues", pdcTag);
-        NbtIo.writeCompressed(fileTag, pdc.getFile());
+        NbtIo.writeCompressed(fileTag, file);
     }
 
 }
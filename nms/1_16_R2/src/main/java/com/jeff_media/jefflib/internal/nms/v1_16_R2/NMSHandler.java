@@ -50,6 +50,9 @@ import com.jeff_media.jefflib.internal.nms.v1_16_R2.ai.HatchedPathNavigation;
 import com.jeff_media.jefflib.internal.nms.v1_16_R2.ai.HatchedTemptGoal;
 import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.serialization.Dynamic;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
@@ -59,6 +62,9 @@ import java.util.stream.Stream;
 import net.minecraft.server.v1_16_R2.AdvancementDataWorld;
 import net.minecraft.server.v1_16_R2.BlockPosition;
 import net.minecraft.server.v1_16_R2.ChatDeserializer;
+import net.minecraft.server.v1_16_R2.DataConverterRegistry;
+import net.minecraft.server.v1_16_R2.DataConverterTypes;
+import net.minecraft.server.v1_16_R2.DynamicOpsNBT;
 import net.minecraft.server.v1_16_R2.Entity;
 import net.minecraft.server.v1_16_R2.EntityAreaEffectCloud;
 import net.minecraft.server.v1_16_R2.EntityArmorStand;
@@ -72,6 +78,7 @@ import net.minecraft.server.v1_16_R2.ItemStack;
 import net.minecraft.server.v1_16_R2.LootDeserializationContext;
 import net.minecraft.server.v1_16_R2.MinecraftKey;
 import net.minecraft.server.v1_16_R2.MojangsonParser;
+import net.minecraft.server.v1_16_R2.NBTBase;
 import net.minecraft.server.v1_16_R2.NBTCompressedStreamTools;
 import net.minecraft.server.v1_16_R2.NBTTagCompound;
 import net.minecraft.server.v1_16_R2.Packet;
@@ -99,7 +106,6 @@ import org.bukkit.craftbukkit.v1_16_R2.CraftWorld;
 import org.bukkit.craftbukkit.v1_16_R2.entity.CraftPlayer;
 import org.bukkit.craftbukkit.v1_16_R2.inventory.CraftItemStack;
 import org.bukkit.craftbukkit.v1_16_R2.persistence.CraftPersistentDataContainer;
-import org.bukkit.craftbukkit.v1_16_R2.persistence.CraftPersistentDataTypeRegistry;
 import org.bukkit.craftbukkit.v1_16_R2.util.CraftChatMessage;
 import org.bukkit.craftbukkit.v1_16_R2.util.CraftNamespacedKey;
 import org.bukkit.entity.Creature;
@@ -401,6 +407,39 @@ public class NMSHandler implements AbstractNMSHandler, AbstractNMSTranslationKey
         ((CraftPersistentDataContainer) target).putAll(tag);
     }
 
+    @Override
+    public void writePdc(final PersistentDataContainer pdc, final DataOutput output) throws IOException {
+        NBTCompressedStreamTools.a(((CraftPersistentDataContainer) pdc).toTagCompound(), output);
+    }
+
+    @Override
+    public void readPdc(final DataInput input, final PersistentDataContainer target) throws IOException {
+        ((CraftPersistentDataContainer) target).putAll(NBTCompressedStreamTools.a(input));
+    }
+
+    @Override
+    public int getPdcTagType(final PersistentDataContainer pdc, final NamespacedKey key) {
+        final NBTBase tag = ((CraftPersistentDataContainer) pdc).getRaw().get(key.toString());
+        return tag == null ? 0 : tag.getTypeId();
+    }
+
+    @Override
+    public void writeItemStack(final org.bukkit.inventory.ItemStack itemStack, final DataOutput output) throws IOException {
+        final NBTTagCompound tag = new NBTTagCompound();
+        CraftItemStack.asNMSCopy(itemStack).save(tag);
+        NBTCompressedStreamTools.a(tag, output);
+    }
+
+    @Override
+    public org.bukkit.inventory.ItemStack readItemStack(final DataInput input, final int dataVersion) throws IOException {
+        NBTTagCompound tag = NBTCompressedStreamTools.a(input);
+        final int currentVersion = Bukkit.getUnsafe().getDataVersion();
+        if (dataVersion < currentVersion) {
+            tag = (NBTTagCompound) DataConverterRegistry.a().update(DataConverterTypes.ITEM_STACK, new Dynamic<>(DynamicOpsNBT.a, tag), dataVersion, currentVersion).getValue();
+        }
+        return CraftItemStack.asBukkitCopy(ItemStack.a(tag));
+    }
+
     @Override
     public void respawnPlayer(Player player) {
         NMS.getServer().getPlayerList().moveToWorld(NMS.toNms(player), true);
@@ -453,21 +492,11 @@ public class NMSHandler implements AbstractNMSHandler, AbstractNMSTranslationKey
     }
 
     @Override
-    public OfflinePlayerPersistentDataContainer getPDCFromDatFile(File file) throws IOException {
-        CraftPersistentDataTypeRegistry registry = new CraftPersistentDataTypeRegistry();
-        CraftPersistentDataContainer container = new CraftPersistentDataContainer(registry);
-        NBTTagCompound fileTag = NBTCompressedStreamTools.a(file);
-        NBTTagCompound pdcTag = fileTag.getCompound("BukkitValues");
-        container.putAll(pdcTag);
-        return new OfflinePlayerPersistentDataContainer(container, file, fileTag);
-    }
-
-    @Override
-    public void updatePdcInDatFile(OfflinePlayerPersistentDataContainer pdc) throws IOException {
+    public void updatePdcInDatFile(OfflinePlayerPersistentDataContainer pdc, File file) throws IOException {
         NBTTagCompound pdcTag = ((CraftPersistentDataContainer) pdc.getCraftPersistentDataContainer()).toTagCompound();
-        NBTTagCompound fileTag = (NBTTagCompound) pdc.getCompoundTag();
+        NBTTagCompound fileTag = NBTCompressedStreamTools.a(pdc.getFile());
         fileTag.set("BukkitValues", pdcTag);
-        NBTCompressedStreamTools.a(fileTag, pdc.getFile());
+        NBTCompressedStreamTools.a(fileTag, file);
     }
 
 }